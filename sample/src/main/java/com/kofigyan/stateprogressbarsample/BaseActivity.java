@@ -6,6 +6,10 @@ import android.view.Menu;
 import android.view.MenuItem;
 
 import com.kofigyan.stateprogressbar.StateProgressBar;
+import com.kofigyan.stateprogressbar.StateProgressRecorder;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 
 /**
  * Created by Kofi Gyan on 7/22/2016.
@@ -73,4 +77,10 @@ public abstract class BaseActivity extends Activity {
         return true;
     }
 
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        StateProgressRecorder.dump(prefix, writer);
+    }
+
 }
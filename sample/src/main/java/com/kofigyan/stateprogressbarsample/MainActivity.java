@@ -3,6 +3,7 @@ package com.kofigyan.stateprogressbarsample;
 import android.content.res.Resources;
 import android.os.Bundle;
 
+import com.kofigyan.stateprogressbar.StateProgressRecorder;
 import com.kofigyan.stateprogressbarsample.not_stateprogressbar.adapter.ApiFeatureAdapter;
 import com.kofigyan.stateprogressbarsample.not_stateprogressbar.pojo.ApiFeature;
 
@@ -15,6 +16,9 @@ public class MainActivity extends ListBaseActivity {
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
+        // shown by adb shell dumpsys activity for the demo screens
+        StateProgressRecorder.setEnabled(BuildConfig.DEBUG);
+
         setContentView(R.layout.activity_main);
 
         List<ApiFeature> features = getApiFeatures();
@@ -0,0 +1,207 @@
+package com.kofigyan.stateprogressbarsample;
+
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Debug;
+import android.os.Handler;
+import android.support.v7.widget.LinearLayoutManager;
+import android.view.Choreographer;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.widget.TextView;
+
+import com.kofigyan.stateprogressbarsample.not_stateprogressbar.adapter.StressAdapter;
+import com.kofigyan.stateprogressbarsample.not_stateprogressbar.utils.FrameStats;
+
+import java.util.Random;
+
+/**
+ * Thousands of bars in a list, with periodic state updates, a scripted fling and an overlay of
+ * frame times, jank, GC count and allocations.
+ */
+
+public class StressTestActivity extends ListBaseActivity {
+
+    private static final int ITEM_COUNT = 5000;
+
+    private static final int[] UPDATE_FREQUENCIES = {0, 10, 60};
+
+    private static final int UPDATES_PER_TICK = 5;
+
+    private static final int FLING_COUNT = 10;
+    private static final int FLING_VELOCITY = 8000;
+    private static final long FLING_INTERVAL_MILLIS = 1200;
+
+    private static final long STATS_INTERVAL_MILLIS = 500;
+
+    private final Handler handler = new Handler();
+    private final Random random = new Random();
+    private final FrameStats frameStats = new FrameStats(300);
+
+    private StressAdapter adapter;
+    private TextView frameStatsView;
+
+    private int updateFrequencyIndex;
+    private int remainingFlings;
+
+    private Object frameCallback;
+
+    private final Runnable updateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+            int first = layoutManager.findFirstVisibleItemPosition();
+            int last = layoutManager.findLastVisibleItemPosition();
+            if (first >= 0) {
+                for (int i = 0; i < UPDATES_PER_TICK; i++) {
+                    adapter.advance(first + random.nextInt(last - first + 1));
+                }
+            }
+            scheduleUpdates();
+        }
+    };
+
+    private final Runnable flingRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (remainingFlings-- <= 0) {
+                return;
+            }
+            recyclerView.fling(0, remainingFlings % 2 == 0 ? -FLING_VELOCITY : FLING_VELOCITY);
+            handler.postDelayed(this, FLING_INTERVAL_MILLIS);
+        }
+    };
+
+    private final Runnable statsRunnable = new Runnable() {
+        @Override
+        public void run() {
+            frameStatsView.setText(updateFrequencyText() + "\n" + frameStats);
+            handler.postDelayed(this, STATS_INTERVAL_MILLIS);
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        setContentView(R.layout.activity_stress_test);
+
+        frameStatsView = (TextView) findViewById(R.id.tvFrameStats);
+
+        adapter = new StressAdapter(ITEM_COUNT);
+        recyclerView.setAdapter(adapter);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+
+        frameStats.reset();
+        startFrameCallbacks();
+        handler.post(statsRunnable);
+        scheduleUpdates();
+    }
+
+    @Override
+    protected void onPause() {
+        stopFrameCallbacks();
+        handler.removeCallbacksAndMessages(null);
+        remainingFlings = 0;
+
+        super.onPause();
+    }
+
+    private void scheduleUpdates() {
+        handler.removeCallbacks(updateRunnable);
+        int frequency = UPDATE_FREQUENCIES[updateFrequencyIndex];
+        if (frequency > 0) {
+            handler.postDelayed(updateRunnable, 1000 / frequency);
+        }
+    }
+
+    private String updateFrequencyText() {
+        return "updates " + UPDATE_FREQUENCIES[updateFrequencyIndex] + "/s"
+                + (adapter.isAnimationEnabled() ? "  animated" : "")
+                + (adapter.isDescriptionsEnabled() ? "  descriptions" : "")
+                + (adapter.isLevelOfDetailEnabled() ? "  lod" : "");
+    }
+
+    private void startFrameCallbacks() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            return;
+        }
+
+        if (frameCallback == null) {
+            frameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    frameStats.onFrame(frameTimeNanos, getRuntimeStat("art.gc.gc-count"), getRuntimeStat("art.gc.bytes-allocated"));
+                    Choreographer.getInstance().postFrameCallback(this);
+                }
+            };
+        }
+        Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) frameCallback);
+    }
+
+    private void stopFrameCallbacks() {
+        if (frameCallback != null) {
+            Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) frameCallback);
+        }
+    }
+
+    /**
+     * @return runtime counter, -1 before Marshmallow or when the runtime does not provide it
+     */
+    private static long getRuntimeStat(String name) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return -1;
+        }
+        String value = Debug.getRuntimeStat(name);
+        return value != null ? Long.parseLong(value) : -1;
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_stress, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+
+        switch (item.getItemId()) {
+
+            case R.id.fling:
+                handler.removeCallbacks(flingRunnable);
+                remainingFlings = FLING_COUNT;
+                frameStats.reset();
+                handler.post(flingRunnable);
+                break;
+
+            case R.id.animation:
+                adapter.setAnimationEnabled(!adapter.isAnimationEnabled());
+                break;
+
+            case R.id.descriptions:
+                adapter.setDescriptionsEnabled(!adapter.isDescriptionsEnabled());
+                break;
+
+            case R.id.level_of_detail:
+                adapter.setLevelOfDetailEnabled(!adapter.isLevelOfDetailEnabled());
+                break;
+
+            case R.id.update_frequency:
+                updateFrequencyIndex = (updateFrequencyIndex + 1) % UPDATE_FREQUENCIES.length;
+                scheduleUpdates();
+                break;
+
+            case R.id.reset_stats:
+                frameStats.reset();
+                break;
+
+        }
+
+        return true;
+    }
+
+}
@@ -5,6 +5,10 @@ import android.view.View;
 import android.widget.Button;
 
 import com.kofigyan.stateprogressbar.StateProgressBar;
+import com.kofigyan.stateprogressbar.StateProgressRecorder;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 
 /**
  * Created by Kofi Gyan on 7/17/2016.
@@ -12,6 +16,8 @@ import com.kofigyan.stateprogressbar.StateProgressBar;
 
 public abstract class UsageBaseActivity extends Activity implements View.OnClickListener {
 
+    protected static final String USAGE_SESSION_ID = "usage";
+
     protected String[] descriptionData = {"Details", "Pricing", "Amenities", "Status"};
     protected Button nextBtn;
     protected Button backBtn;
@@ -30,6 +36,7 @@ public abstract class UsageBaseActivity extends Activity implements View.OnClick
         nextBtn.setOnClickListener(this);
 
         stateprogressbar = (StateProgressBar) findViewById(R.id.usage_stateprogressbar);
+        stateprogressbar.attachToSession(USAGE_SESSION_ID);
         stateprogressbar.setStateDescriptionData(descriptionData);
     }
 
@@ -38,5 +45,11 @@ public abstract class UsageBaseActivity extends Activity implements View.OnClick
         backBtn.setOnClickListener(this);
     }
 
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        StateProgressRecorder.dump(prefix, writer);
+    }
+
 
 }
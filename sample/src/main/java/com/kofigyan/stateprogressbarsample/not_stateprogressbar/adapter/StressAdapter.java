@@ -0,0 +1,115 @@
+package com.kofigyan.stateprogressbarsample.not_stateprogressbar.adapter;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import com.kofigyan.stateprogressbar.StateProgressBar;
+import com.kofigyan.stateprogressbarsample.R;
+
+import java.util.List;
+
+/**
+ * Rows of the stress test screen, each with a bar.
+ */
+
+public class StressAdapter extends RecyclerView.Adapter<StressAdapter.ItemViewHolder> {
+
+    private static final int MAX_STATE_NUMBER = 5;
+
+    private final int[] currentStates;
+    private boolean animationEnabled;
+    private boolean descriptionsEnabled = true;
+    private boolean levelOfDetailEnabled;
+
+    public StressAdapter(int itemCount) {
+        currentStates = new int[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            currentStates[i] = i % (MAX_STATE_NUMBER + 1);
+        }
+    }
+
+    public static class ItemViewHolder extends RecyclerView.ViewHolder {
+
+        TextView title;
+        StateProgressBar stateProgressBar;
+
+        ItemViewHolder(View itemView) {
+            super(itemView);
+            title = (TextView) itemView.findViewById(R.id.tvTitle);
+            stateProgressBar = (StateProgressBar) itemView.findViewById(R.id.state_progress_bar);
+        }
+
+    }
+
+    public void setAnimationEnabled(boolean animationEnabled) {
+        this.animationEnabled = animationEnabled;
+        notifyDataSetChanged();
+    }
+
+    public boolean isAnimationEnabled() {
+        return animationEnabled;
+    }
+
+    public void setDescriptionsEnabled(boolean descriptionsEnabled) {
+        this.descriptionsEnabled = descriptionsEnabled;
+        notifyDataSetChanged();
+    }
+
+    public boolean isDescriptionsEnabled() {
+        return descriptionsEnabled;
+    }
+
+    public void setLevelOfDetailEnabled(boolean levelOfDetailEnabled) {
+        this.levelOfDetailEnabled = levelOfDetailEnabled;
+        notifyDataSetChanged();
+    }
+
+    public boolean isLevelOfDetailEnabled() {
+        return levelOfDetailEnabled;
+    }
+
+    /**
+     * moves the row to its next state, wrapping around after the last one
+     */
+    public void advance(int position) {
+        currentStates[position] = (currentStates[position] + 1) % (MAX_STATE_NUMBER + 1);
+        notifyItemChanged(position, Boolean.TRUE);
+    }
+
+    @Override
+    public int getItemCount() {
+        return currentStates.length;
+    }
+
+    @Override
+    public ItemViewHolder onCreateViewHolder(ViewGroup viewGroup, int i) {
+        View v = LayoutInflater.from(viewGroup.getContext()).inflate(R.layout.item_stress, viewGroup, false);
+        return new ItemViewHolder(v);
+    }
+
+    @Override
+    public void onBindViewHolder(ItemViewHolder itemViewHolder, int i, List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(itemViewHolder, i);
+            return;
+        }
+        itemViewHolder.stateProgressBar.setStateNumbers(currentStates[i], MAX_STATE_NUMBER);
+        if (animationEnabled) {
+            itemViewHolder.stateProgressBar.enableAnimationToCurrentState(true);
+        }
+    }
+
+    @Override
+    public void onBindViewHolder(ItemViewHolder itemViewHolder, int i) {
+        itemViewHolder.title.setText("Pipeline " + (i + 1));
+        itemViewHolder.stateProgressBar.setUnit(descriptionsEnabled ? "steps" : null);
+        itemViewHolder.stateProgressBar.setStateDescriptionSize(descriptionsEnabled ? 15f : 0f);
+        itemViewHolder.stateProgressBar.setStateNumbers(currentStates[i], MAX_STATE_NUMBER);
+        itemViewHolder.stateProgressBar.setLevelOfDetailEnabled(levelOfDetailEnabled);
+        itemViewHolder.stateProgressBar.enableAnimationToCurrentState(animationEnabled);
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.kofigyan.stateprogressbarsample.not_stateprogressbar.utils;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Frame time statistics of the last frames. Fed with frame timestamps and runtime counters, so it
+ * can be driven by a fake clock as well as by the Choreographer.
+ */
+
+public class FrameStats {
+
+    private static final long FRAME_BUDGET_NANOS = 16666667L;
+
+    private final long[] frameDurations;
+    private int count;
+    private int next;
+
+    private long lastFrameTimeNanos = -1;
+    private long firstGcCount = -1;
+    private long lastGcCount;
+    private long firstBytesAllocated = -1;
+    private long lastBytesAllocated;
+    private long frames;
+
+    public FrameStats(int windowSize) {
+        frameDurations = new long[windowSize];
+    }
+
+    /**
+     * @param frameTimeNanos  start of the frame
+     * @param gcCount         garbage collections so far, -1 when unknown
+     * @param bytesAllocated  bytes allocated so far, -1 when unknown
+     */
+    public void onFrame(long frameTimeNanos, long gcCount, long bytesAllocated) {
+        if (lastFrameTimeNanos >= 0) {
+            frameDurations[next] = frameTimeNanos - lastFrameTimeNanos;
+            next = (next + 1) % frameDurations.length;
+            count = Math.min(count + 1, frameDurations.length);
+            frames++;
+        } else {
+            firstGcCount = gcCount;
+            firstBytesAllocated = bytesAllocated;
+        }
+        lastFrameTimeNanos = frameTimeNanos;
+        lastGcCount = gcCount;
+        lastBytesAllocated = bytesAllocated;
+    }
+
+    public void reset() {
+        count = 0;
+        next = 0;
+        frames = 0;
+        lastFrameTimeNanos = -1;
+    }
+
+    /**
+     * @return frame duration at the percentile, in milliseconds
+     */
+    public float getPercentileMillis(int percentile) {
+        if (count == 0) {
+            return 0f;
+        }
+        long[] durations = Arrays.copyOf(frameDurations, count);
+        Arrays.sort(durations);
+        return durations[Math.min(count - 1, count * percentile / 100)] / 1000000f;
+    }
+
+    /**
+     * @return percentage of the frames that took longer than one and a half budget
+     */
+    public float getJankPercentage() {
+        if (count == 0) {
+            return 0f;
+        }
+        int janky = 0;
+        for (int i = 0; i < count; i++) {
+            if (frameDurations[i] > FRAME_BUDGET_NANOS * 3 / 2) {
+                janky++;
+            }
+        }
+        return 100f * janky / count;
+    }
+
+    public long getGcCount() {
+        return firstGcCount < 0 ? -1 : lastGcCount - firstGcCount;
+    }
+
+    public long getBytesAllocatedPerFrame() {
+        return firstBytesAllocated < 0 || frames == 0 ? -1 : (lastBytesAllocated - firstBytesAllocated) / frames;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "p50 %.1fms  p90 %.1fms  p99 %.1fms\njank %.1f%%  gc %d  alloc %d B/frame",
+                getPercentileMillis(50), getPercentileMillis(90), getPercentileMillis(99),
+                getJankPercentage(), getGcCount(), getBytesAllocatedPerFrame());
+    }
+
+}
@@ -12,6 +12,7 @@ import com.kofigyan.stateprogressbarsample.CheckFourStatesActivity;
 import com.kofigyan.stateprogressbarsample.ColoringStatesActivity;
 import com.kofigyan.stateprogressbarsample.DescriptionFourStatesActivity;
 import com.kofigyan.stateprogressbarsample.StatesListActivity;
+import com.kofigyan.stateprogressbarsample.StressTestActivity;
 import com.kofigyan.stateprogressbarsample.UsageDetailsActivity;
 
 /**
@@ -21,7 +22,7 @@ import com.kofigyan.stateprogressbarsample.UsageDetailsActivity;
 public class Utils {
 
     public static Class[] basicActivities = {BasicFiveStatesActivity.class,BasicFourStatesActivity.class, BasicThreeStatesActivity.class, BasicTwoStatesActivity.class};
-    public static Class[] allActivities = {StatesListActivity.class, CheckFourStatesActivity.class, AllStatesCompletedActivity.class, AnimationFourStatesActivity.class, DescriptionFourStatesActivity.class, ChangingStatesSizeActivity.class, ColoringStatesActivity.class, UsageDetailsActivity.class};
+    public static Class[] allActivities = {StatesListActivity.class, CheckFourStatesActivity.class, AllStatesCompletedActivity.class, AnimationFourStatesActivity.class, DescriptionFourStatesActivity.class, ChangingStatesSizeActivity.class, ColoringStatesActivity.class, UsageDetailsActivity.class, StressTestActivity.class};
 
 
     public static Class selectActivity(int position, Class[] activities) {
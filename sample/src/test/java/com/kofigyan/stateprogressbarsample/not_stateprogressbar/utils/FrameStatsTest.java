@@ -0,0 +1,69 @@
+package com.kofigyan.stateprogressbarsample.not_stateprogressbar.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FrameStatsTest {
+
+    private static final long MILLIS = 1000000L;
+
+    @Test
+    public void reportsNothingBeforeTheSecondFrame() {
+        FrameStats stats = new FrameStats(10);
+        stats.onFrame(0, -1, -1);
+
+        assertEquals(0f, stats.getPercentileMillis(50), 0f);
+        assertEquals(0f, stats.getJankPercentage(), 0f);
+        assertEquals(-1, stats.getGcCount());
+        assertEquals(-1, stats.getBytesAllocatedPerFrame());
+    }
+
+    @Test
+    public void computesPercentilesAndJankOfTheFrameDurations() {
+        FrameStats stats = new FrameStats(100);
+        long time = 0;
+        stats.onFrame(time, 0, 0);
+        // frames of 100 down to 1 ms, the order must not matter
+        for (int i = 100; i >= 1; i--) {
+            time += i * MILLIS;
+            stats.onFrame(time, 0, 0);
+        }
+
+        assertEquals(51f, stats.getPercentileMillis(50), 0.001f);
+        assertEquals(91f, stats.getPercentileMillis(90), 0.001f);
+        assertEquals(100f, stats.getPercentileMillis(99), 0.001f);
+        // frames longer than 25 ms, one and a half budget
+        assertEquals(75f, stats.getJankPercentage(), 0.001f);
+    }
+
+    @Test
+    public void keepsOnlyTheLastFramesOfTheWindow() {
+        FrameStats stats = new FrameStats(4);
+        long time = 0;
+        stats.onFrame(time, 0, 0);
+        for (int i = 0; i < 4; i++) {
+            time += 50 * MILLIS;
+            stats.onFrame(time, 0, 0);
+        }
+        for (int i = 0; i < 4; i++) {
+            time += 16 * MILLIS;
+            stats.onFrame(time, 0, 0);
+        }
+
+        assertEquals(16f, stats.getPercentileMillis(99), 0.001f);
+        assertEquals(0f, stats.getJankPercentage(), 0f);
+    }
+
+    @Test
+    public void reportsGarbageCollectionsAndAllocationsSinceTheFirstFrame() {
+        FrameStats stats = new FrameStats(10);
+        stats.onFrame(0, 3, 1000);
+        stats.onFrame(16 * MILLIS, 4, 3000);
+        stats.onFrame(32 * MILLIS, 5, 5000);
+
+        assertEquals(2, stats.getGcCount());
+        assertEquals(2000, stats.getBytesAllocatedPerFrame());
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.kofigyan.stateprogressbar;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the bytes of a transfer split into steps, e.g. the files of an upload, and maps them to
+ * the state and fraction of a bar. The I/O thread only adds to an atomic counter, see
+ * {@link ProgressInputStream}, {@link ProgressOutputStream} and {@link ProgressChannels}, and a
+ * {@link ProgressPoller} reads it once per frame.
+ */
+
+public class ByteProgress implements ProgressSource {
+
+    private final AtomicLong mBytes = new AtomicLong();
+
+    /**
+     * offset at which each step ends, the last one is the total
+     */
+    private final long[] mStepEnds;
+
+    /**
+     * @param stepSizes bytes of each step
+     */
+    public ByteProgress(long... stepSizes) {
+        if (stepSizes.length == 0) {
+            throw new IllegalArgumentException("At least one step is required.");
+        }
+
+        mStepEnds = new long[stepSizes.length];
+        long end = 0;
+        for (int i = 0; i < stepSizes.length; i++) {
+            if (stepSizes[i] < 0) {
+                throw new IllegalArgumentException("Step size (" + stepSizes[i] + ") cannot be negative");
+            }
+            end += stepSizes[i];
+            mStepEnds[i] = end;
+        }
+    }
+
+    /**
+     * Splits the bytes into steps of equal size.
+     */
+    public static ByteProgress ofEqualSteps(long totalBytes, int stepCount) {
+        long[] stepSizes = new long[stepCount];
+        for (int i = 0; i < stepCount; i++) {
+            stepSizes[i] = totalBytes * (i + 1) / stepCount - totalBytes * i / stepCount;
+        }
+        return new ByteProgress(stepSizes);
+    }
+
+    /**
+     * Counts transferred bytes, can be called from any thread.
+     */
+    public void add(long bytes) {
+        mBytes.addAndGet(bytes);
+    }
+
+    public long getBytes() {
+        return mBytes.get();
+    }
+
+    /**
+     * @return the bytes transferred so far
+     */
+    @Override
+    public long getPosition() {
+        return mBytes.get();
+    }
+
+    public void reset() {
+        mBytes.set(0);
+    }
+
+    public long getTotalBytes() {
+        return mStepEnds[mStepEnds.length - 1];
+    }
+
+    @Override
+    public int getStepCount() {
+        return mStepEnds.length;
+    }
+
+    @Override
+    public boolean isComplete(long bytes) {
+        return bytes >= getTotalBytes();
+    }
+
+    /**
+     * @return the number of completed steps + 1, from 1 to the step count + 1 once complete
+     */
+    @Override
+    public int getStateNumber(long bytes) {
+        for (int i = 0; i < mStepEnds.length; i++) {
+            if (bytes < mStepEnds[i]) {
+                return i + 1;
+            }
+        }
+        return mStepEnds.length + 1;
+    }
+
+    /**
+     * @return progress within the step starting at the state, from 0 to 1, 1 once complete
+     */
+    @Override
+    public float getFraction(long bytes, int stateNumber) {
+        if (stateNumber > mStepEnds.length) {
+            return 1f;
+        }
+        long start = stateNumber > 1 ? mStepEnds[stateNumber - 2] : 0;
+        long size = mStepEnds[stateNumber - 1] - start;
+        if (size <= 0) {
+            return 1f;
+        }
+        return Math.max(0f, Math.min(1f, (bytes - start) / (float) size));
+    }
+
+}
@@ -0,0 +1,155 @@
+package com.kofigyan.stateprogressbar;
+
+import com.kofigyan.stateprogressbar.utils.StripedCounter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Progress of a job made of weighted phases, e.g. hashing, uploading and verifying, that many
+ * worker threads report into at once. Each phase counts its units in a {@link StripedCounter},
+ * so reporting threads don't contend, and phase i fills the line from state i to state i + 1 of
+ * the bar.
+ * <p>
+ * The main thread samples it once per frame through a {@link ProgressPoller}: the state is the
+ * number of completed phases + 1 and the fraction is the completion of the first incomplete
+ * phase.
+ */
+
+public class ProgressAggregator implements ProgressSource {
+
+    /**
+     * total of a phase that is not known yet, the phase is not complete
+     */
+    public static final long UNKNOWN_TOTAL = -1;
+
+    private final float[] mWeights;
+    private final StripedCounter[] mCompleted;
+    private final AtomicLongArray mTotals;
+
+    /**
+     * counts every change of the phases, striped as well so that it adds no contention
+     */
+    private final StripedCounter mVersion = new StripedCounter();
+
+    /**
+     * completed units of each phase at the last {@link #getPosition()}, only used on the thread
+     * sampling it
+     */
+    private final long[] mSampledCompleted;
+    private final long[] mSampledTotals;
+
+    /**
+     * @param phaseWeights share of each phase in {@link #getOverallFraction()}. The bar shows the
+     *                     phases as the lines between its states, so the weights don't change
+     *                     what it draws.
+     */
+    public ProgressAggregator(float... phaseWeights) {
+        if (phaseWeights.length == 0) {
+            throw new IllegalArgumentException("At least one phase is required.");
+        }
+
+        mWeights = phaseWeights.clone();
+        mCompleted = new StripedCounter[phaseWeights.length];
+        mTotals = new AtomicLongArray(phaseWeights.length);
+        for (int i = 0; i < phaseWeights.length; i++) {
+            mCompleted[i] = new StripedCounter();
+            mTotals.set(i, UNKNOWN_TOTAL);
+        }
+        mSampledCompleted = new long[phaseWeights.length];
+        mSampledTotals = new long[phaseWeights.length];
+    }
+
+    /**
+     * Sets the units of work of the phase, can be called from any thread, e.g. once the size of
+     * an upload is known.
+     */
+    public void setPhaseTotal(int phase, long totalUnits) {
+        mTotals.set(phase, totalUnits);
+        mVersion.add(1);
+    }
+
+    /**
+     * Counts completed units of the phase, can be called from any thread.
+     */
+    public void add(int phase, long units) {
+        mCompleted[phase].add(units);
+        mVersion.add(1);
+    }
+
+    /**
+     * Samples the phases. The position is the number of changes made so far, it only grows, so
+     * it differs from the last one whenever a phase changed in between.
+     */
+    @Override
+    public long getPosition() {
+        // read first, a change made while sampling is seen again with the next version
+        long version = mVersion.sum();
+        for (int i = 0; i < mCompleted.length; i++) {
+            mSampledCompleted[i] = mCompleted[i].sum();
+            mSampledTotals[i] = mTotals.get(i);
+        }
+        return version;
+    }
+
+    @Override
+    public int getStepCount() {
+        return mCompleted.length;
+    }
+
+    @Override
+    public int getStateNumber(long position) {
+        for (int i = 0; i < mCompleted.length; i++) {
+            if (!isPhaseComplete(i)) {
+                return i + 1;
+            }
+        }
+        return mCompleted.length + 1;
+    }
+
+    @Override
+    public float getFraction(long position, int stateNumber) {
+        if (stateNumber > mCompleted.length) {
+            return 1f;
+        }
+        return getPhaseFraction(stateNumber - 1);
+    }
+
+    @Override
+    public boolean isComplete(long position) {
+        for (int i = 0; i < mCompleted.length; i++) {
+            if (!isPhaseComplete(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the weighted progress of all phases at the last sample, from 0 to 1
+     */
+    public float getOverallFraction() {
+        float weightSum = 0f;
+        float progress = 0f;
+        for (int i = 0; i < mWeights.length; i++) {
+            weightSum += mWeights[i];
+            progress += mWeights[i] * getPhaseFraction(i);
+        }
+        return weightSum > 0f ? progress / weightSum : 0f;
+    }
+
+    private boolean isPhaseComplete(int phase) {
+        return mSampledTotals[phase] != UNKNOWN_TOTAL && mSampledCompleted[phase] >= mSampledTotals[phase];
+    }
+
+    private float getPhaseFraction(int phase) {
+        long total = mSampledTotals[phase];
+        if (total == UNKNOWN_TOTAL) {
+            return 0f;
+        }
+        if (total <= 0) {
+            return 1f;
+        }
+        return Math.max(0f, Math.min(1f, mSampledCompleted[phase] / (float) total));
+    }
+
+}
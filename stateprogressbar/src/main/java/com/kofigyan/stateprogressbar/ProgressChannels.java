@@ -0,0 +1,111 @@
+package com.kofigyan.stateprogressbar;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Counts the bytes moved through channels into a {@link ByteProgress}.
+ * <p>
+ * The transfer methods keep {@link FileChannel#transferTo} and {@link FileChannel#transferFrom}
+ * zero-copy: the raw channels are handed to them in chunks and the bytes counted after each
+ * chunk. Pass them unwrapped channels, a wrapped one makes the platform fall back to copying.
+ */
+
+public final class ProgressChannels {
+
+    /**
+     * bytes per transfer call, small enough for the progress to move a few times per second
+     */
+    private static final long TRANSFER_CHUNK_SIZE = 1024 * 1024;
+
+    private ProgressChannels() {
+    }
+
+    public static ReadableByteChannel readable(final ReadableByteChannel channel, final ByteProgress progress) {
+        return new ReadableByteChannel() {
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                int read = channel.read(dst);
+                if (read > 0) {
+                    progress.add(read);
+                }
+                return read;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return channel.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    public static WritableByteChannel writable(final WritableByteChannel channel, final ByteProgress progress) {
+        return new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                int written = channel.write(src);
+                if (written > 0) {
+                    progress.add(written);
+                }
+                return written;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return channel.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    /**
+     * Transfers the bytes of the file to the target, like {@link FileChannel#transferTo}, until
+     * count bytes are transferred or the end of the file is reached.
+     *
+     * @return the number of bytes transferred
+     */
+    public static long transferTo(FileChannel source, long position, long count, WritableByteChannel target, ByteProgress progress) throws IOException {
+        long transferred = 0;
+        while (transferred < count) {
+            long chunk = source.transferTo(position + transferred, Math.min(TRANSFER_CHUNK_SIZE, count - transferred), target);
+            if (chunk <= 0) {
+                break;
+            }
+            transferred += chunk;
+            progress.add(chunk);
+        }
+        return transferred;
+    }
+
+    /**
+     * Transfers bytes from the source into the file, like {@link FileChannel#transferFrom},
+     * until count bytes are transferred or the source has no more.
+     *
+     * @return the number of bytes transferred
+     */
+    public static long transferFrom(ReadableByteChannel source, FileChannel target, long position, long count, ByteProgress progress) throws IOException {
+        long transferred = 0;
+        while (transferred < count) {
+            long chunk = target.transferFrom(source, position + transferred, Math.min(TRANSFER_CHUNK_SIZE, count - transferred));
+            if (chunk <= 0) {
+                break;
+            }
+            transferred += chunk;
+            progress.add(chunk);
+        }
+        return transferred;
+    }
+
+}
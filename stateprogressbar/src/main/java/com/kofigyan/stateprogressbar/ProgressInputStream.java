@@ -0,0 +1,71 @@
+package com.kofigyan.stateprogressbar;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read from the wrapped stream into a {@link ByteProgress}. Reads go straight
+ * to the wrapped stream into the caller's buffer.
+ */
+
+public class ProgressInputStream extends FilterInputStream {
+
+    private final ByteProgress mProgress;
+
+    /**
+     * bytes read since the last mark, uncounted on reset
+     */
+    private long mBytesSinceMark;
+
+    public ProgressInputStream(InputStream in, ByteProgress progress) {
+        super(in);
+        mProgress = progress;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b >= 0) {
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = in.read(b, off, len);
+        if (read > 0) {
+            count(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = in.skip(n);
+        if (skipped > 0) {
+            count(skipped);
+        }
+        return skipped;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        in.mark(readlimit);
+        mBytesSinceMark = 0;
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        in.reset();
+        mProgress.add(-mBytesSinceMark);
+        mBytesSinceMark = 0;
+    }
+
+    private void count(long bytes) {
+        mBytesSinceMark += bytes;
+        mProgress.add(bytes);
+    }
+
+}
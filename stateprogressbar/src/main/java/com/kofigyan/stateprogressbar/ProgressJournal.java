@@ -0,0 +1,605 @@
+package com.kofigyan.stateprogressbar;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append only journal of the progress of {@link ProgressSession}s, kept in a memory mapped file
+ * so it survives process death.
+ * <p>
+ * Every change of the state numbers is appended as a compact binary record. Appending is a copy
+ * into the mapped buffer, the write to disk is left to the kernel and fsyncs are batched on a
+ * background thread. Changes of the fraction alone, which come once per frame while a transfer
+ * runs, only update the record in memory and are appended at the next batched sync.
+ * The file is compacted on the background thread down to the last record of every session once
+ * it fills up, the caller never waits for the file system. Changes that don't fit while the
+ * compaction runs are kept in memory and appended to the compacted file. The last record of
+ * every session is kept in memory, so reading it is O(1) after {@link #open(File)}.
+ * <p>
+ * Layout: a header (magic, end offset of the valid records) followed by records of
+ * (session id, current state number, max state number, fraction, timestamp). Removing a session
+ * appends a tombstone record, with a current state number of -1. The end offset is written
+ * after the record, so a record torn by a crash is ignored on the next open.
+ */
+
+public class ProgressJournal {
+
+    private static final String TAG = "ProgressJournal";
+
+    private static final String FILE_NAME = "state_progress.journal";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int MAGIC = 0x53504a31;
+
+    private static final int HEADER_SIZE = 8;
+    private static final int END_OFFSET_POSITION = 4;
+
+    /**
+     * bytes of a record besides the session id: id length, current, max, fraction, timestamp
+     */
+    private static final int RECORD_FIXED_SIZE = 2 + 4 + 4 + 4 + 8;
+
+    /**
+     * current state number of the record written when a session is removed
+     */
+    private static final int TOMBSTONE = -1;
+
+    private static final int MAX_SESSION_ID_LENGTH = Short.MAX_VALUE;
+
+    static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private static final long SYNC_DELAY_MILLIS = 1000;
+
+    private static ProgressJournal sInstance;
+
+    private final File mFile;
+    private final ScheduledExecutorService mExecutor;
+
+    /**
+     * last record of every session, and tombstones of removed sessions not compacted away yet
+     */
+    private final Map<String, Record> mRecords = new HashMap<String, Record>();
+    private final Map<String, Record> mTombstones = new HashMap<String, Record>();
+
+    /**
+     * records whose latest fraction is not appended yet, written at the next sync
+     */
+    private final List<Record> mDirtyRecords = new ArrayList<Record>();
+
+    /**
+     * incremented on every change, tells the changes made while a compaction ran
+     */
+    private long mSequence;
+
+    private RandomAccessFile mRandomAccessFile;
+    private MappedByteBuffer mBuffer;
+    private int mEnd;
+
+    private boolean mIsSyncScheduled;
+    private boolean mIsCompactionScheduled;
+    private boolean mIsClosed;
+
+    /**
+     * Last state journaled for a session.
+     */
+    public static final class Entry {
+
+        private final String mSessionId;
+        private final int mCurrentStateNumber;
+        private final int mMaxStateNumber;
+        private final float mStateProgressFraction;
+        private final long mTimestamp;
+
+        Entry(String sessionId, int currentStateNumber, int maxStateNumber, float stateProgressFraction, long timestamp) {
+            mSessionId = sessionId;
+            mCurrentStateNumber = currentStateNumber;
+            mMaxStateNumber = maxStateNumber;
+            mStateProgressFraction = stateProgressFraction;
+            mTimestamp = timestamp;
+        }
+
+        public String getSessionId() {
+            return mSessionId;
+        }
+
+        public int getCurrentStateNumber() {
+            return mCurrentStateNumber;
+        }
+
+        public int getMaxStateNumber() {
+            return mMaxStateNumber;
+        }
+
+        /**
+         * @return the fraction, NaN when no fraction was set
+         */
+        public float getStateProgressFraction() {
+            return mStateProgressFraction;
+        }
+
+        public boolean isStateProgressFractionSet() {
+            return !Float.isNaN(mStateProgressFraction);
+        }
+
+        public long getTimestamp() {
+            return mTimestamp;
+        }
+    }
+
+    /**
+     * Record of a session with its encoded id, updated in place so that journaling a change
+     * allocates nothing.
+     */
+    private static final class Record {
+
+        final String mSessionId;
+        final byte[] mId;
+        int mCurrentStateNumber;
+        int mMaxStateNumber;
+        float mStateProgressFraction;
+        long mTimestamp;
+        long mSequence;
+        boolean mIsDirty;
+
+        Record(String sessionId, byte[] id) {
+            mSessionId = sessionId;
+            mId = id;
+        }
+
+        void set(int currentStateNumber, int maxStateNumber, float stateProgressFraction, long timestamp, long sequence) {
+            mCurrentStateNumber = currentStateNumber;
+            mMaxStateNumber = maxStateNumber;
+            mStateProgressFraction = stateProgressFraction;
+            mTimestamp = timestamp;
+            mSequence = sequence;
+        }
+
+        Record copy() {
+            Record copy = new Record(mSessionId, mId);
+            copy.set(mCurrentStateNumber, mMaxStateNumber, mStateProgressFraction, mTimestamp, mSequence);
+            return copy;
+        }
+
+        int getSize() {
+            return RECORD_FIXED_SIZE + mId.length;
+        }
+
+        boolean hasSameStateNumbers(int currentStateNumber, int maxStateNumber) {
+            return mCurrentStateNumber == currentStateNumber && mMaxStateNumber == maxStateNumber;
+        }
+
+        boolean hasSameFraction(float stateProgressFraction) {
+            return Float.floatToIntBits(mStateProgressFraction) == Float.floatToIntBits(stateProgressFraction);
+        }
+
+        Entry toEntry() {
+            return new Entry(mSessionId, mCurrentStateNumber, mMaxStateNumber, mStateProgressFraction, mTimestamp);
+        }
+    }
+
+    /**
+     * @return the journal in the files directory of the application, opened on first use
+     */
+    public static synchronized ProgressJournal getInstance(Context context) throws IOException {
+        if (sInstance == null || sInstance.isClosed()) {
+            sInstance = open(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+        }
+        return sInstance;
+    }
+
+    /**
+     * Opens the journal, creating the file when missing, and reads the last record of every
+     * session.
+     */
+    public static ProgressJournal open(File file) throws IOException {
+        ProgressJournal journal = new ProgressJournal(file);
+        journal.load();
+        return journal;
+    }
+
+    private ProgressJournal(File file) {
+        mFile = file;
+        mExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, TAG);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @return the last state journaled for the session, null when none
+     */
+    public synchronized Entry get(String sessionId) {
+        Record record = mRecords.get(sessionId);
+        return record != null ? record.toEntry() : null;
+    }
+
+    public synchronized List<Entry> getEntries() {
+        List<Entry> entries = new ArrayList<Entry>(mRecords.size());
+        for (Record record : mRecords.values()) {
+            entries.add(record.toEntry());
+        }
+        return entries;
+    }
+
+    /**
+     * Appends the state of the session, unless it equals the last journaled one. A change of the
+     * fraction alone is appended at the next sync, coalesced with the ones following it.
+     *
+     * @param stateProgressFraction the fraction, NaN when no fraction is set
+     */
+    public synchronized void record(String sessionId, int currentStateNumber, int maxStateNumber, float stateProgressFraction) {
+        checkNotClosed();
+
+        Record record = mRecords.get(sessionId);
+        if (record != null && record.hasSameStateNumbers(currentStateNumber, maxStateNumber)) {
+            if (record.hasSameFraction(stateProgressFraction)) {
+                return;
+            }
+
+            record.set(currentStateNumber, maxStateNumber, stateProgressFraction, System.currentTimeMillis(), ++mSequence);
+            if (!record.mIsDirty) {
+                record.mIsDirty = true;
+                mDirtyRecords.add(record);
+            }
+            scheduleSync();
+            return;
+        }
+
+        if (record == null) {
+            // a pending tombstone is superseded by the new record
+            record = mTombstones.remove(sessionId);
+            if (record == null) {
+                byte[] id = sessionId.getBytes(UTF_8);
+                if (id.length > MAX_SESSION_ID_LENGTH) {
+                    throw new IllegalArgumentException("Session id is too long.");
+                }
+                record = new Record(sessionId, id);
+            }
+            mRecords.put(sessionId, record);
+        }
+
+        record.set(currentStateNumber, maxStateNumber, stateProgressFraction, System.currentTimeMillis(), ++mSequence);
+        record.mIsDirty = false;
+        append(record);
+    }
+
+    /**
+     * Removes the session, a tombstone is appended so that it stays removed after a restart.
+     */
+    public synchronized void remove(String sessionId) {
+        checkNotClosed();
+
+        Record record = mRecords.remove(sessionId);
+        if (record == null) {
+            return;
+        }
+
+        record.set(TOMBSTONE, 0, Float.NaN, System.currentTimeMillis(), ++mSequence);
+        record.mIsDirty = false;
+        mTombstones.put(sessionId, record);
+        append(record);
+    }
+
+    /**
+     * Writes the pending records to disk and releases the file.
+     */
+    public synchronized void close() {
+        if (mIsClosed) {
+            return;
+        }
+
+        appendDirtyRecords();
+        mIsClosed = true;
+        mExecutor.shutdown();
+        mBuffer.force();
+        try {
+            mRandomAccessFile.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to close the journal", e);
+        }
+    }
+
+    public synchronized boolean isClosed() {
+        return mIsClosed;
+    }
+
+    /**
+     * waits for the syncs and compactions scheduled so far, for tests
+     */
+    void awaitBackgroundWork() throws Exception {
+        mExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get();
+    }
+
+    synchronized int getCapacity() {
+        return mBuffer.capacity();
+    }
+
+    private void checkNotClosed() {
+        if (mIsClosed) {
+            throw new IllegalStateException("Journal is closed.");
+        }
+    }
+
+    private void load() throws IOException {
+        map(mFile, Math.max(INITIAL_CAPACITY, (int) mFile.length()));
+
+        if (mBuffer.getInt(0) != MAGIC) {
+            mBuffer.putInt(0, MAGIC);
+            setEnd(HEADER_SIZE);
+            return;
+        }
+
+        int end = mBuffer.getInt(END_OFFSET_POSITION);
+        if (end < HEADER_SIZE || end > mBuffer.capacity()) {
+            end = HEADER_SIZE;
+        }
+
+        int position = HEADER_SIZE;
+        try {
+            while (position < end) {
+                position = readRecord(position, end);
+            }
+        } catch (BufferUnderflowException e) {
+            Log.w(TAG, "Ignoring a corrupt record at " + position);
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Ignoring a corrupt record at " + position);
+        }
+        mBuffer.clear();
+        setEnd(Math.min(position, end));
+    }
+
+    private int readRecord(int position, int end) {
+        mBuffer.limit(end).position(position);
+        int idLength = mBuffer.getShort();
+        if (idLength < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        byte[] id = new byte[idLength];
+        mBuffer.get(id);
+        String sessionId = new String(id, UTF_8);
+        Record record = new Record(sessionId, id);
+        record.set(mBuffer.getInt(), mBuffer.getInt(), mBuffer.getFloat(), mBuffer.getLong(), 0);
+
+        if (record.mCurrentStateNumber == TOMBSTONE) {
+            mRecords.remove(sessionId);
+        } else {
+            mRecords.put(sessionId, record);
+        }
+
+        int next = mBuffer.position();
+        mBuffer.clear();
+        return next;
+    }
+
+    private static void writeRecord(MappedByteBuffer buffer, int position, Record record) {
+        buffer.position(position);
+        buffer.putShort((short) record.mId.length);
+        buffer.put(record.mId);
+        buffer.putInt(record.mCurrentStateNumber);
+        buffer.putInt(record.mMaxStateNumber);
+        buffer.putFloat(record.mStateProgressFraction);
+        buffer.putLong(record.mTimestamp);
+    }
+
+    /**
+     * Appends the record to the mapped file. A record that doesn't fit stays in memory only and
+     * is written by the compaction scheduled for it.
+     */
+    private void append(Record record) {
+        int size = record.getSize();
+        if (mEnd + size > mBuffer.capacity()) {
+            scheduleCompaction();
+            return;
+        }
+
+        writeRecord(mBuffer, mEnd, record);
+        setEnd(mEnd + size);
+
+        scheduleSync();
+        if (mEnd > mBuffer.capacity() * 3 / 4) {
+            scheduleCompaction();
+        }
+    }
+
+    /**
+     * Appends the fractions changed since the last sync, the records are dropped from the dirty
+     * ones when a later change appended them already.
+     */
+    private void appendDirtyRecords() {
+        for (int i = 0; i < mDirtyRecords.size(); i++) {
+            Record record = mDirtyRecords.get(i);
+            if (record.mIsDirty) {
+                record.mIsDirty = false;
+                append(record);
+            }
+        }
+        mDirtyRecords.clear();
+    }
+
+    private void setEnd(int end) {
+        mEnd = end;
+        mBuffer.putInt(END_OFFSET_POSITION, end);
+    }
+
+    private void map(File file, int capacity) throws IOException {
+        mRandomAccessFile = new RandomAccessFile(file, "rw");
+        mBuffer = mRandomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    /**
+     * Writes the records to a new file, large enough to stay at most half full.
+     *
+     * @return the capacity of the file
+     */
+    private static int writeCompacted(Record[] records, File compacted) throws IOException {
+        int size = HEADER_SIZE;
+        for (Record record : records) {
+            size += record.getSize();
+        }
+
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < size * 2) {
+            capacity *= 2;
+        }
+
+        RandomAccessFile compactedFile = new RandomAccessFile(compacted, "rw");
+        try {
+            compactedFile.setLength(0);
+            MappedByteBuffer buffer = compactedFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            int position = HEADER_SIZE;
+            for (Record record : records) {
+                writeRecord(buffer, position, record);
+                position += record.getSize();
+            }
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(END_OFFSET_POSITION, position);
+            buffer.force();
+        } catch (BufferOverflowException e) {
+            throw new IOException("Compacted journal overflowed");
+        } finally {
+            compactedFile.close();
+        }
+        return capacity;
+    }
+
+    private void scheduleSync() {
+        if (mIsSyncScheduled) {
+            return;
+        }
+
+        mIsSyncScheduled = true;
+        mExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                sync();
+            }
+        }, SYNC_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void sync() {
+        MappedByteBuffer buffer;
+        synchronized (this) {
+            if (mIsClosed) {
+                mIsSyncScheduled = false;
+                return;
+            }
+            // still scheduled, so the appends don't schedule another sync
+            appendDirtyRecords();
+            mIsSyncScheduled = false;
+            buffer = mBuffer;
+        }
+        // outside of the lock, appends go on while the pages are written
+        buffer.force();
+    }
+
+    private void scheduleCompaction() {
+        if (mIsCompactionScheduled || mIsClosed) {
+            return;
+        }
+
+        mIsCompactionScheduled = true;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                compact();
+            }
+        });
+    }
+
+    /**
+     * Writes the last record of every session to a new file without holding the lock, swaps it
+     * in, then appends the changes made in the meantime. The journal keeps its old file when
+     * writing fails.
+     */
+    private void compact() {
+        Record[] snapshot;
+        long snapshotSequence;
+        synchronized (this) {
+            mIsCompactionScheduled = false;
+            if (mIsClosed) {
+                return;
+            }
+
+            snapshotSequence = mSequence;
+            snapshot = new Record[mRecords.size()];
+            int i = 0;
+            for (Record record : mRecords.values()) {
+                snapshot[i++] = record.copy();
+            }
+        }
+
+        File compacted = new File(mFile.getPath() + ".tmp");
+        int capacity;
+        try {
+            capacity = writeCompacted(snapshot, compacted);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to compact the journal", e);
+            return;
+        }
+
+        synchronized (this) {
+            if (mIsClosed) {
+                compacted.delete();
+                return;
+            }
+
+            try {
+                if (!compacted.renameTo(mFile)) {
+                    throw new IOException("Failed to replace " + mFile);
+                }
+                mRandomAccessFile.close();
+                map(mFile, capacity);
+                mEnd = mBuffer.getInt(END_OFFSET_POSITION);
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to compact the journal", e);
+                return;
+            }
+
+            for (Record record : mRecords.values()) {
+                if (record.mSequence > snapshotSequence) {
+                    record.mIsDirty = false;
+                    append(record);
+                }
+            }
+            Iterator<Record> tombstones = mTombstones.values().iterator();
+            while (tombstones.hasNext()) {
+                Record tombstone = tombstones.next();
+                if (tombstone.mSequence > snapshotSequence) {
+                    append(tombstone);
+                } else {
+                    // the compacted file doesn't have the session anymore
+                    tombstones.remove();
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.kofigyan.stateprogressbar;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Counts the bytes written to the wrapped stream into a {@link ByteProgress}. Arrays are passed
+ * to the wrapped stream as they are, rather than byte by byte as {@link FilterOutputStream} does.
+ */
+
+public class ProgressOutputStream extends FilterOutputStream {
+
+    private final ByteProgress mProgress;
+
+    public ProgressOutputStream(OutputStream out, ByteProgress progress) {
+        super(out);
+        mProgress = progress;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        mProgress.add(1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        mProgress.add(len);
+    }
+
+}
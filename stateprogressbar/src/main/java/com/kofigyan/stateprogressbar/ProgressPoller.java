@@ -0,0 +1,102 @@
+package com.kofigyan.stateprogressbar;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+/**
+ * Shows a {@link ProgressSource}, e.g. a {@link ByteProgress}, on a bar. The source is read once
+ * per frame on the main thread, so the threads doing the work never post UI work, and the bar is
+ * only updated when the position changed. Polling stops by itself once the work is complete.
+ * <p>
+ * {@link #start()} and {@link #stop()} must be called from the main thread, stop it when the
+ * bar goes away before the transfer completes.
+ */
+
+public class ProgressPoller {
+
+    private static final long FALLBACK_FRAME_MILLIS = 16;
+
+    private final ProgressSource mProgress;
+    private final StateProgressBar mBar;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mPollRunnable = new Runnable() {
+        @Override
+        public void run() {
+            poll();
+        }
+    };
+    private Object mFrameCallback;
+
+    private boolean mIsPolling;
+    private long mShownPosition = -1;
+
+    public ProgressPoller(ProgressSource progress, StateProgressBar bar) {
+        mProgress = progress;
+        mBar = bar;
+    }
+
+    public void start() {
+        if (mIsPolling) {
+            return;
+        }
+        mIsPolling = true;
+        mShownPosition = -1;
+        poll();
+    }
+
+    public void stop() {
+        if (!mIsPolling) {
+            return;
+        }
+        mIsPolling = false;
+        if (mFrameCallback != null) {
+            Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) mFrameCallback);
+        }
+        mHandler.removeCallbacks(mPollRunnable);
+    }
+
+    public boolean isPolling() {
+        return mIsPolling;
+    }
+
+    private void poll() {
+        if (!mIsPolling) {
+            return;
+        }
+
+        long position = mProgress.getPosition();
+        if (position != mShownPosition) {
+            mShownPosition = position;
+            int stateNumber = mProgress.getStateNumber(position);
+            mBar.setStateNumbers(stateNumber, mProgress.getStepCount() + 1);
+            mBar.setStateProgressFraction(mProgress.getFraction(position, stateNumber));
+        }
+
+        if (mProgress.isComplete(position)) {
+            mIsPolling = false;
+            return;
+        }
+        scheduleNextFrame();
+    }
+
+    private void scheduleNextFrame() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            mHandler.postDelayed(mPollRunnable, FALLBACK_FRAME_MILLIS);
+            return;
+        }
+
+        if (mFrameCallback == null) {
+            mFrameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    poll();
+                }
+            };
+        }
+        Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) mFrameCallback);
+    }
+
+}
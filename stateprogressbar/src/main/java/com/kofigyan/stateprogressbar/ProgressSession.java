@@ -0,0 +1,125 @@
+package com.kofigyan.stateprogressbar;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Progress shared by the bars of a multi screen flow. A bar attached with
+ * {@link StateProgressBar#attachToSession(String)} starts from the state of the session, keeps
+ * it up to date, and only replays the animation when the current state moved since it was last
+ * animated.
+ * <p>
+ * Sessions live until {@link #remove(String)} is called. With a {@link ProgressJournal} set,
+ * sessions also survive process death. Must be used from the main thread.
+ */
+
+public class ProgressSession {
+
+    private static final Map<String, ProgressSession> SESSIONS = new HashMap<String, ProgressSession>();
+
+    private static ProgressJournal sJournal;
+
+    private final String mId;
+
+    private boolean mHasState;
+    private int mCurrentStateNumber;
+    private int mMaxStateNumber;
+    private float mStateProgressFraction;
+    private boolean mIsStateProgressFractionSet;
+
+    /**
+     * current state number the last finished animation ran to, -1 when never animated
+     */
+    private int mAnimatedStateNumber = -1;
+    private float mAnimEndXPos;
+
+    public static ProgressSession get(String id) {
+        ProgressSession session = SESSIONS.get(id);
+        if (session == null) {
+            session = new ProgressSession(id);
+            if (sJournal != null) {
+                session.restore(sJournal.get(id));
+            }
+            SESSIONS.put(id, session);
+        }
+        return session;
+    }
+
+    public static void remove(String id) {
+        SESSIONS.remove(id);
+        if (sJournal != null) {
+            sJournal.remove(id);
+        }
+    }
+
+    /**
+     * Sets the journal sessions are restored from when first used and written to on every
+     * change, null to keep sessions in memory only.
+     */
+    public static void setJournal(ProgressJournal journal) {
+        sJournal = journal;
+    }
+
+    private ProgressSession(String id) {
+        mId = id;
+    }
+
+    public String getId() {
+        return mId;
+    }
+
+    public int getCurrentStateNumber() {
+        return mCurrentStateNumber;
+    }
+
+    public int getMaxStateNumber() {
+        return mMaxStateNumber;
+    }
+
+    boolean hasState() {
+        return mHasState;
+    }
+
+    private void restore(ProgressJournal.Entry entry) {
+        if (entry == null) {
+            return;
+        }
+
+        mHasState = true;
+        mCurrentStateNumber = entry.getCurrentStateNumber();
+        mMaxStateNumber = entry.getMaxStateNumber();
+        mIsStateProgressFractionSet = entry.isStateProgressFractionSet();
+        mStateProgressFraction = mIsStateProgressFractionSet ? entry.getStateProgressFraction() : 0f;
+    }
+
+    void applyTo(StateProgressDrawable drawable) {
+        drawable.setStateNumbers(mCurrentStateNumber, mMaxStateNumber);
+        drawable.restoreStateProgressFraction(mStateProgressFraction, mIsStateProgressFractionSet);
+    }
+
+    void update(StateProgressDrawable drawable) {
+        mHasState = true;
+        mCurrentStateNumber = drawable.getCurrentStateNumber();
+        mMaxStateNumber = drawable.getMaxStateNumber();
+        mStateProgressFraction = drawable.getStateProgressFraction();
+        mIsStateProgressFractionSet = drawable.isStateProgressFractionSet();
+
+        if (sJournal != null) {
+            sJournal.record(mId, mCurrentStateNumber, mMaxStateNumber, mIsStateProgressFractionSet ? mStateProgressFraction : Float.NaN);
+        }
+    }
+
+    boolean isAnimated(int currentStateNumber) {
+        return mAnimatedStateNumber == currentStateNumber;
+    }
+
+    float getAnimEndXPos() {
+        return mAnimEndXPos;
+    }
+
+    void onAnimationFinished(int currentStateNumber, float animEndXPos) {
+        mAnimatedStateNumber = currentStateNumber;
+        mAnimEndXPos = animEndXPos;
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.kofigyan.stateprogressbar;
+
+/**
+ * Progress of work split into steps, read by a {@link ProgressPoller} once per frame. The bar
+ * shows one state more than there are steps, step i fills the line from state i to state i + 1.
+ */
+
+public interface ProgressSource {
+
+    /**
+     * @return a position that changes whenever the progress does, the other methods are asked
+     * about the position last returned
+     */
+    long getPosition();
+
+    int getStepCount();
+
+    /**
+     * @return the number of completed steps + 1, from 1 to the step count + 1 once complete
+     */
+    int getStateNumber(long position);
+
+    /**
+     * @return progress within the step starting at the state, from 0 to 1, 1 once complete
+     */
+    float getFraction(long position, int stateNumber);
+
+    boolean isComplete(long position);
+
+}
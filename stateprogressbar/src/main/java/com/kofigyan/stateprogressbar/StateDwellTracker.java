@@ -0,0 +1,249 @@
+package com.kofigyan.stateprogressbar;
+
+import android.os.SystemClock;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long a flow stays in each state, e.g. the steps of a checkout. Set it on a bar
+ * with {@link StateProgressBar#setDwellTracker(StateDwellTracker)}: every change of the current
+ * state number records the time spent in the previous state, on the monotonic clock, into a
+ * histogram of that state.
+ * <p>
+ * Histograms are preallocated arrays, recording allocates nothing. They are handed to the
+ * {@link Listener} in batches, periodically and on {@link #flush()}, on a background thread, so
+ * exporting them never runs on the main thread or once per transition.
+ */
+
+public class StateDwellTracker {
+
+    /**
+     * dwell times are bucketed by powers of two of milliseconds, the last bucket holds all
+     * longer ones
+     */
+    public static final int BUCKET_COUNT = 24;
+
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "StateDwellTracker");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+
+    /**
+     * Receives the dwell times recorded since the previous snapshot.
+     */
+    public interface Listener {
+
+        /**
+         * Called on a background thread. The snapshot is reused, it is only valid during the
+         * call.
+         */
+        void onSnapshot(Snapshot snapshot);
+    }
+
+    /**
+     * Dwell times recorded between two snapshots, per state number.
+     */
+    public static final class Snapshot {
+
+        private final int mMaxStateNumber;
+        private final long[] mCounts;
+        private final long[] mTotalMillis;
+        private final long[] mBuckets;
+        private long mStartTime;
+        private long mEndTime;
+
+        private Snapshot(int maxStateNumber) {
+            mMaxStateNumber = maxStateNumber;
+            mCounts = new long[maxStateNumber];
+            mTotalMillis = new long[maxStateNumber];
+            mBuckets = new long[maxStateNumber * BUCKET_COUNT];
+        }
+
+        public int getMaxStateNumber() {
+            return mMaxStateNumber;
+        }
+
+        /**
+         * @return the number of times the state was left
+         */
+        public long getCount(int stateNumber) {
+            return mCounts[stateNumber - 1];
+        }
+
+        public long getTotalMillis(int stateNumber) {
+            return mTotalMillis[stateNumber - 1];
+        }
+
+        /**
+         * @return the number of dwell times of the state in the bucket, see {@link #getBucketUpperBoundMillis}
+         */
+        public long getBucketCount(int stateNumber, int bucket) {
+            return mBuckets[(stateNumber - 1) * BUCKET_COUNT + bucket];
+        }
+
+        /**
+         * @return the exclusive upper bound of the bucket, {@link Long#MAX_VALUE} for the last one
+         */
+        public static long getBucketUpperBoundMillis(int bucket) {
+            return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << bucket;
+        }
+
+        /**
+         * @return start of the period, on the {@link SystemClock#elapsedRealtime()} clock
+         */
+        public long getStartTime() {
+            return mStartTime;
+        }
+
+        public long getEndTime() {
+            return mEndTime;
+        }
+    }
+
+    private final int mMaxStateNumber;
+
+    /**
+     * live histograms, guarded by this
+     */
+    private final long[] mCounts;
+    private final long[] mTotalMillis;
+    private final long[] mBuckets;
+    private long mPeriodStartTime;
+    private boolean mHasRecords;
+
+    /**
+     * only used on the export thread
+     */
+    private final Snapshot mSnapshot;
+
+    /**
+     * current state and when it was entered, only used on the main thread
+     */
+    private int mStateNumber;
+    private long mEnteredTime;
+
+    private Listener mListener;
+    private ScheduledFuture<?> mExportFuture;
+
+    private final Runnable mExportRunnable = new Runnable() {
+        @Override
+        public void run() {
+            export();
+        }
+    };
+
+    /**
+     * @param maxStateNumber highest state number recorded, higher ones are ignored
+     */
+    public StateDwellTracker(int maxStateNumber) {
+        mMaxStateNumber = maxStateNumber;
+        mCounts = new long[maxStateNumber];
+        mTotalMillis = new long[maxStateNumber];
+        mBuckets = new long[maxStateNumber * BUCKET_COUNT];
+        mSnapshot = new Snapshot(maxStateNumber);
+        mPeriodStartTime = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Sets the listener snapshots are exported to, every period and on {@link #flush()}. Periods
+     * without transitions export nothing.
+     */
+    public synchronized void setListener(Listener listener, long periodMillis) {
+        mListener = listener;
+        if (mExportFuture != null) {
+            mExportFuture.cancel(false);
+            mExportFuture = null;
+        }
+        if (listener != null) {
+            mExportFuture = EXECUTOR.scheduleAtFixedRate(mExportRunnable, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Exports the dwell times recorded so far, e.g. when the app goes to the background.
+     */
+    public void flush() {
+        EXECUTOR.execute(mExportRunnable);
+    }
+
+    /**
+     * Records the time spent in the current state, e.g. when the flow is finished or abandoned,
+     * and stops measuring until the next state change.
+     */
+    public void end() {
+        onStateNumberChanged(0);
+    }
+
+    /**
+     * Called by the bar whenever its state may have changed, must be called on the main thread.
+     */
+    void onStateNumberChanged(int stateNumber) {
+        onStateNumberChanged(stateNumber, SystemClock.elapsedRealtime());
+    }
+
+    /**
+     * @param now time of the change, on the {@link SystemClock#elapsedRealtime()} clock
+     */
+    void onStateNumberChanged(int stateNumber, long now) {
+        if (stateNumber == mStateNumber) {
+            return;
+        }
+
+        if (mStateNumber > 0 && mStateNumber <= mMaxStateNumber) {
+            record(mStateNumber, now - mEnteredTime);
+        }
+        mStateNumber = stateNumber;
+        mEnteredTime = now;
+    }
+
+    private synchronized void record(int stateNumber, long dwellMillis) {
+        int index = stateNumber - 1;
+        mCounts[index]++;
+        mTotalMillis[index] += dwellMillis;
+        mBuckets[index * BUCKET_COUNT + getBucket(dwellMillis)]++;
+        mHasRecords = true;
+    }
+
+    static int getBucket(long dwellMillis) {
+        return Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, dwellMillis)));
+    }
+
+    /**
+     * hands the dwell times recorded since the last export to the listener, on the calling thread
+     */
+    void export() {
+        Listener listener;
+        synchronized (this) {
+            listener = mListener;
+            if (listener == null || !mHasRecords) {
+                return;
+            }
+
+            long now = SystemClock.elapsedRealtime();
+            System.arraycopy(mCounts, 0, mSnapshot.mCounts, 0, mMaxStateNumber);
+            System.arraycopy(mTotalMillis, 0, mSnapshot.mTotalMillis, 0, mMaxStateNumber);
+            System.arraycopy(mBuckets, 0, mSnapshot.mBuckets, 0, mBuckets.length);
+            mSnapshot.mStartTime = mPeriodStartTime;
+            mSnapshot.mEndTime = now;
+
+            Arrays.fill(mCounts, 0);
+            Arrays.fill(mTotalMillis, 0);
+            Arrays.fill(mBuckets, 0);
+            mPeriodStartTime = now;
+            mHasRecords = false;
+        }
+
+        listener.onSnapshot(mSnapshot);
+    }
+
+}
@@ -0,0 +1,13 @@
+package com.kofigyan.stateprogressbar;
+
+/**
+ * Formats the value shown under a state of {@link StateProgressBar}.
+ * <p>
+ * Results are cached per formatter instance, so implementations must return the same label
+ * for the same value.
+ */
+public interface StateLabelFormatter {
+
+    String format(int value);
+
+}
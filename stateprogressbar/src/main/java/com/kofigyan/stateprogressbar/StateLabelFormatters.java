@@ -0,0 +1,79 @@
+package com.kofigyan.stateprogressbar;
+
+import java.text.NumberFormat;
+import java.util.Locale;
+
+/**
+ * Ready made {@link StateLabelFormatter}s.
+ */
+public final class StateLabelFormatters {
+
+    private static final String[] COMPACT_SUFFIXES = {"", "K", "M", "B"};
+    private static final String[] BYTE_UNITS = {"B", "KB", "MB", "GB"};
+
+    /**
+     * Plain decimal value, the format used when no formatter is set.
+     */
+    public static final StateLabelFormatter PLAIN = new StateLabelFormatter() {
+        @Override
+        public String format(int value) {
+            return String.valueOf(value);
+        }
+    };
+
+    private StateLabelFormatters() {
+    }
+
+    /**
+     * Value with locale specific digits and grouping, e.g. "12,500".
+     */
+    public static StateLabelFormatter number(Locale locale) {
+        final NumberFormat numberFormat = NumberFormat.getIntegerInstance(locale);
+
+        return new StateLabelFormatter() {
+            @Override
+            public String format(int value) {
+                synchronized (numberFormat) {
+                    return numberFormat.format(value);
+                }
+            }
+        };
+    }
+
+    /**
+     * Value shortened with a magnitude suffix, e.g. "3.4M".
+     */
+    public static StateLabelFormatter compact(Locale locale) {
+        return scaled(locale, 1000, COMPACT_SUFFIXES, "");
+    }
+
+    /**
+     * Value as a byte count in binary units, e.g. "1.2 GB".
+     */
+    public static StateLabelFormatter bytes(Locale locale) {
+        return scaled(locale, 1024, BYTE_UNITS, " ");
+    }
+
+    private static StateLabelFormatter scaled(Locale locale, final int base, final String[] suffixes, final String separator) {
+        final NumberFormat numberFormat = NumberFormat.getNumberInstance(locale);
+        numberFormat.setMaximumFractionDigits(1);
+
+        return new StateLabelFormatter() {
+            @Override
+            public String format(int value) {
+                double scaledValue = value;
+                int magnitude = 0;
+
+                while (Math.abs(scaledValue) >= base && magnitude < suffixes.length - 1) {
+                    scaledValue /= base;
+                    magnitude++;
+                }
+
+                synchronized (numberFormat) {
+                    return numberFormat.format(scaledValue) + separator + suffixes[magnitude];
+                }
+            }
+        };
+    }
+
+}
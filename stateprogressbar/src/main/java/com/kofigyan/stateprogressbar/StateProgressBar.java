@@ -3,18 +3,18 @@ package com.kofigyan.stateprogressbar;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
-import android.graphics.Paint;
-import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.os.Parcelable;
-import android.support.v4.content.ContextCompat;
+import android.os.SystemClock;
+import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.view.animation.AccelerateDecelerateInterpolator;
 import android.widget.Scroller;
 
-import com.kofigyan.stateprogressbar.utils.FontManager;
-
+import java.io.PrintWriter;
 import java.util.ArrayList;
 
 
@@ -25,9 +25,26 @@ import java.util.ArrayList;
 public class StateProgressBar extends View {
 
 
-    public static final float EMPTY_CIRCLE_SCALE_RATE = 1.5f;
-    private State[] states;
-    private String unitLabel;
+    public static final float EMPTY_CIRCLE_SCALE_RATE = StateProgressDrawable.EMPTY_CIRCLE_SCALE_RATE;
+
+    private static final int MEASURE_CACHE_SIZE = 4;
+
+    /**
+     * scroll events further apart than this belong to separate motions
+     */
+    private static final long MOTION_EVENT_GAP_MILLIS = 100;
+
+    /**
+     * scroll events further apart than this, but within one motion, mean frames are dropped
+     */
+    private static final long SLOW_FRAME_MILLIS = 24;
+
+    private static final float FAST_SCROLL_VELOCITY_DP = 1200f;
+
+    /**
+     * full detail returns once no scroll event arrived for this long
+     */
+    private static final long SETTLE_DELAY_MILLIS = 120;
 
     public enum StateNumber {
         ZERO(0), ONE(1), TWO(2), THREE(3), FOUR(4), FIVE(5);
@@ -42,38 +59,22 @@ public class StateProgressBar extends View {
         }
     }
 
-    private static final int MIN_STATE_NUMBER = 1;
-    private static final int MAX_STATE_NUMBER = 5;
-
     private static final String END_CENTER_X_KEY = "mEndCenterX";
     private static final String START_CENTER_X_KEY = "mStartCenterX";
     private static final String ANIM_START_X_POS_KEY = "mAnimStartXPos";
     private static final String ANIM_END_X_POS_KEY = "mAnimEndXPos";
     private static final String IS_CURRENT_ANIM_STARTED_KEY = "mIsCurrentAnimStarted";
     private static final String ANIMATE_TO_CURRENT_PROGRESS_STATE_KEY = "mAnimateToCurrentProgressState";
+    private static final String STATE_PROGRESS_FRACTION_KEY = "mStateProgressFraction";
+    private static final String IS_STATE_PROGRESS_FRACTION_SET_KEY = "mIsStateProgressFractionSet";
     private static final String SUPER_STATE_KEY = "superState";
 
     private ArrayList<String> mStateDescriptionData = new ArrayList<String>();
 
-    private float mStateRadius;
-    private float mStateSize;
-    private float mStateLineThickness;
-    private float mStateNumberTextSize;
-    private float mStateDescriptionSize;
-
-    /**
-     * width of one cell = stageWidth/noOfStates
-     */
-    private float mCellWidth;
-
-    private float mCellHeight;
-
-    private float mPaddingHorizontal;
-
     /**
-     * next cell(state) from previous cell
+     * draws the states, the view only hosts it
      */
-    private float mNextCellWidth;
+    private StateProgressDrawable mStateProgressDrawable;
 
     /**
      * center of first cell(state)
@@ -85,38 +86,9 @@ public class StateProgressBar extends View {
      */
     private float mEndCenterX;
 
-    private int mMaxStateNumber;
-    private int mCurrentStateNumber;
-
     private int mAnimStartDelay;
     private int mAnimDuration;
 
-    private float mSpacing;
-
-    private float mDescTopSpaceDecrementer;
-    private float mDescTopSpaceIncrementer;
-
-    private static final float DEFAULT_TEXT_SIZE = 15f;
-    private static final float DEFAULT_STATE_SIZE = 25f;
-
-    /**
-     * Paints for drawing
-     */
-    private Paint mStateNumberForegroundPaint;
-    private Paint mStateCheckedForegroundPaint;
-    private Paint mStateNumberBackgroundPaint;
-    private Paint mBackgroundPaint;
-    private Paint mForegroundPaint;
-    private Paint mCurrentStateDescriptionPaint;
-    private Paint mStateDescriptionPaint;
-
-    private int mBackgroundColor;
-    private int mForegroundColor;
-    private int mStateNumberBackgroundColor;
-    private int mStateNumberForegroundColor;
-    private int mCurrentStateDescriptionColor;
-    private int mStateDescriptionColor;
-
     /**
      * animate inner line to current progress state
      */
@@ -131,13 +103,77 @@ public class StateProgressBar extends View {
     private boolean mIsCurrentAnimStarted;
 
     private boolean mAnimateToCurrentProgressState;
-    private boolean mEnableAllStatesCompleted;
-    private boolean mCheckStateCompleted;
 
-    private boolean mIsStateSizeSet;
-    private boolean mIsStateTextSizeSet;
+    /**
+     * progress shared with the bars of other screens, null when not attached
+     */
+    private ProgressSession mSession;
+
+    private StateDwellTracker mDwellTracker;
 
-    private Typeface mCheckFont;
+    private final int mRecorderId = StateProgressRecorder.nextBarId();
+
+    /**
+     * group the bar is registered with and its id there, null when not registered
+     */
+    private StateProgressBarGroup mGroup;
+    private Object mGroupId;
+
+    /**
+     * whether the group holds an update until the bar is visible, checked before every frame
+     */
+    private boolean mIsGroupUpdateDeferred;
+
+    private final ViewTreeObserver.OnPreDrawListener mGroupUpdateListener = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            if (mGroup != null) {
+                mGroup.onBarShown(mGroupId, StateProgressBar.this);
+            }
+            return true;
+        }
+    };
+
+    /**
+     * last measurements, keyed by the measure specs and the content version of the drawable
+     */
+    private final int[] mMeasureCacheKeys = new int[MEASURE_CACHE_SIZE * 3];
+    private final int[] mMeasureCacheSizes = new int[MEASURE_CACHE_SIZE * 2];
+    private int mMeasureCacheCount;
+    private int mMeasureCacheNext;
+
+    /**
+     * whether the last measured width depended on the content
+     */
+    private boolean mIsWidthWrapped;
+
+    /**
+     * level of detail: reduced while the bar moves fast, frames are dropped or the show
+     * animation runs, see {@link #setLevelOfDetailEnabled(boolean)}
+     */
+    private boolean mIsLevelOfDetailEnabled;
+    private boolean mIsScrolling;
+    private long mLastScrollTime;
+    private final int[] mWindowLocation = new int[2];
+    private int mLastWindowX;
+    private int mLastWindowY;
+    private float mFastScrollVelocity;
+
+    private final ViewTreeObserver.OnScrollChangedListener mScrollListener = new ViewTreeObserver.OnScrollChangedListener() {
+        @Override
+        public void onScrollChanged() {
+            onWindowScrolled();
+        }
+    };
+
+    private final Runnable mSettleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mIsScrolling = false;
+            mLastScrollTime = 0;
+            updateLevelOfDetail();
+        }
+    };
 
     public StateProgressBar(Context context) {
         this(context, null, 0);
@@ -149,9 +185,9 @@ public class StateProgressBar extends View {
 
     public StateProgressBar(Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
+        mStateProgressDrawable = new StateProgressDrawable(context, attrs, defStyle);
+        mStateProgressDrawable.setCallback(this);
         init(context, attrs, defStyle);
-        initializePainters();
-        updateCheckAllStatesValues(mEnableAllStatesCompleted);
 
     }
 
@@ -160,39 +196,19 @@ public class StateProgressBar extends View {
         /**
          * Setting default values.
          */
-        initStateProgressBar(context);
+        mAnimateToCurrentProgressState = false;
+
+        mAnimStartDelay = 100;
+        mAnimDuration = 4000;
 
-        mStateDescriptionSize = convertSpToPixel(mStateDescriptionSize);
-        mStateLineThickness = convertDpToPixel(mStateLineThickness);
-        mSpacing = convertDpToPixel(mSpacing);
-        mCheckFont = FontManager.getTypeface(context, FontManager.FONTAWESOME);
+        mFastScrollVelocity = FAST_SCROLL_VELOCITY_DP * context.getResources().getDisplayMetrics().density;
 
 
         if (attrs != null) {
 
             final TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.StateProgressBar, defStyle, 0);
 
-            mBackgroundColor = a.getColor(R.styleable.StateProgressBar_spb_stateBackgroundColor, mBackgroundColor);
-            mForegroundColor = a.getColor(R.styleable.StateProgressBar_spb_stateForegroundColor, mForegroundColor);
-            mStateNumberBackgroundColor = a.getColor(R.styleable.StateProgressBar_spb_stateNumberBackgroundColor, mStateNumberBackgroundColor);
-            mStateNumberForegroundColor = a.getColor(R.styleable.StateProgressBar_spb_stateNumberForegroundColor, mStateNumberForegroundColor);
-            mCurrentStateDescriptionColor = a.getColor(R.styleable.StateProgressBar_spb_currentStateDescriptionColor, mCurrentStateDescriptionColor);
-            mStateDescriptionColor = a.getColor(R.styleable.StateProgressBar_spb_stateDescriptionColor, mStateDescriptionColor);
-
-            mCurrentStateNumber = a.getInteger(R.styleable.StateProgressBar_spb_currentStateNumber, mCurrentStateNumber);
-            mMaxStateNumber = a.getInteger(R.styleable.StateProgressBar_spb_maxStateNumber, mMaxStateNumber);
-
-            mStateSize = a.getDimension(R.styleable.StateProgressBar_spb_stateSize, mStateSize);
-            mStateNumberTextSize = a.getDimension(R.styleable.StateProgressBar_spb_stateTextSize, mStateNumberTextSize);
-            mStateDescriptionSize = a.getDimension(R.styleable.StateProgressBar_spb_stateDescriptionSize, mStateDescriptionSize);
-            mStateLineThickness = a.getDimension(R.styleable.StateProgressBar_spb_stateLineThickness, mStateLineThickness);
-
-            mCheckStateCompleted = a.getBoolean(R.styleable.StateProgressBar_spb_checkStateCompleted, mCheckStateCompleted);
             mAnimateToCurrentProgressState = a.getBoolean(R.styleable.StateProgressBar_spb_animateToCurrentProgressState, mAnimateToCurrentProgressState);
-            mEnableAllStatesCompleted = a.getBoolean(R.styleable.StateProgressBar_spb_enableAllStatesCompleted, mEnableAllStatesCompleted);
-
-            mDescTopSpaceDecrementer = a.getDimension(R.styleable.StateProgressBar_spb_descriptionTopSpaceDecrementer, mDescTopSpaceDecrementer);
-            mDescTopSpaceIncrementer = a.getDimension(R.styleable.StateProgressBar_spb_descriptionTopSpaceIncrementer, mDescTopSpaceIncrementer);
 
             mAnimDuration = a.getInteger(R.styleable.StateProgressBar_spb_animationDuration, mAnimDuration);
             mAnimStartDelay = a.getInteger(R.styleable.StateProgressBar_spb_animationStartDelay, mAnimStartDelay);
@@ -202,406 +218,492 @@ public class StateProgressBar extends View {
                 stopAnimation();
             }
 
-            resolveStateSize();
-            validateLineThickness(mStateLineThickness);
-            validateStateNumber(mCurrentStateNumber);
-
-            mStateRadius = mStateSize / 2;
-
             a.recycle();
 
         }
 
     }
 
-    private void initializePainters() {
-
-        Typeface typefaceNormal = Typeface.create(Typeface.DEFAULT, Typeface.NORMAL);
-
-        mBackgroundPaint = setPaintAttributes(mStateLineThickness, mBackgroundColor, Paint.Style.STROKE);
-        mForegroundPaint = setPaintAttributes(mStateLineThickness, mForegroundColor, Paint.Style.FILL_AND_STROKE);
-        mStateNumberForegroundPaint = setPaintAttributes(mStateNumberTextSize, mStateNumberForegroundColor, typefaceNormal);
-        mStateCheckedForegroundPaint = setPaintAttributes(mStateNumberTextSize, mStateNumberForegroundColor, mCheckFont);
-        mStateNumberBackgroundPaint = setPaintAttributes(mStateNumberTextSize, mStateNumberBackgroundColor, typefaceNormal);
-        mCurrentStateDescriptionPaint = setPaintAttributes(mStateDescriptionSize, mCurrentStateDescriptionColor, typefaceNormal);
-        mStateDescriptionPaint = setPaintAttributes(mStateDescriptionSize, mStateDescriptionColor, typefaceNormal);
-
+    /**
+     * @return the drawable that renders this bar, can be used to configure it directly
+     */
+    public StateProgressDrawable getStateProgressDrawable() {
+        return mStateProgressDrawable;
     }
 
-    private void validateLineThickness(float lineThickness) {
-        float halvedStateSize = mStateSize / 2;
-
-        if (lineThickness > halvedStateSize) {
-            mStateLineThickness = halvedStateSize;
-        }
+    public void setBackgroundColor(int backgroundColor) {
+        mStateProgressDrawable.setBackgroundColor(backgroundColor);
     }
 
-    private void validateStateSize() {
-        if (mStateSize <= mStateNumberTextSize) {
-            mStateSize = mStateNumberTextSize + mStateNumberTextSize / 2;
-        }
+    public void setForegroundColor(int foregroundColor) {
+        mStateProgressDrawable.setForegroundColor(foregroundColor);
     }
 
-    public void setBackgroundColor(int backgroundColor) {
-        mBackgroundColor = backgroundColor;
-        mBackgroundPaint.setColor(mBackgroundColor);
-        invalidate();
+    /**
+     * @see StateProgressDrawable#setForegroundGradient(int[], float[])
+     */
+    public void setForegroundGradient(int[] colors, float[] positions) {
+        mStateProgressDrawable.setForegroundGradient(colors, positions);
     }
 
-    public void setForegroundColor(int foregroundColor) {
-        mForegroundColor = foregroundColor;
-        mForegroundPaint.setColor(mForegroundColor);
-        invalidate();
+    /**
+     * @see StateProgressDrawable#setBackgroundGradient(int[], float[])
+     */
+    public void setBackgroundGradient(int[] colors, float[] positions) {
+        mStateProgressDrawable.setBackgroundGradient(colors, positions);
     }
 
     public void setStateLineThickness(float stateLineThickness) {
-        mStateLineThickness = convertDpToPixel(stateLineThickness);
-        validateLineThickness(mStateLineThickness);
-        mBackgroundPaint.setStrokeWidth(mStateLineThickness);
-        mForegroundPaint.setStrokeWidth(mStateLineThickness);
-        invalidate();
+        mStateProgressDrawable.setStateLineThickness(stateLineThickness);
     }
 
     public void setStateNumberBackgroundColor(int stateNumberBackgroundColor) {
-        mStateNumberBackgroundColor = stateNumberBackgroundColor;
-        mStateNumberBackgroundPaint.setColor(mStateNumberBackgroundColor);
-        invalidate();
+        mStateProgressDrawable.setStateNumberBackgroundColor(stateNumberBackgroundColor);
     }
 
     public void setStateNumberForegroundColor(int stateNumberForegroundColor) {
-        mStateNumberForegroundColor = stateNumberForegroundColor;
-        mStateNumberForegroundPaint.setColor(mStateNumberForegroundColor);
-        mStateCheckedForegroundPaint.setColor(mStateNumberForegroundColor);
-        invalidate();
+        mStateProgressDrawable.setStateNumberForegroundColor(stateNumberForegroundColor);
     }
 
     public void setStateDescriptionColor(int stateDescriptionColor) {
-        mStateDescriptionColor = stateDescriptionColor;
-        mStateDescriptionPaint.setColor(mStateDescriptionColor);
-        invalidate();
+        mStateProgressDrawable.setStateDescriptionColor(stateDescriptionColor);
     }
 
     public void setCurrentStateDescriptionColor(int currentStateDescriptionColor) {
-        mCurrentStateDescriptionColor = currentStateDescriptionColor;
-        mCurrentStateDescriptionPaint.setColor(mCurrentStateDescriptionColor);
-        invalidate();
+        mStateProgressDrawable.setCurrentStateDescriptionColor(currentStateDescriptionColor);
     }
 
     public void setCurrentStateNumber(int currentStateNumber) {
-        validateStateNumber(currentStateNumber);
-        mCurrentStateNumber = currentStateNumber;
-        updateCheckAllStatesValues(mEnableAllStatesCompleted);
-        recalculateCellParams();
-        recalculateBarState();
-        invalidate();
+        StateProgressRecorder.record(mRecorderId, StateProgressRecorder.EVENT_SET_CURRENT_STATE, currentStateNumber);
+        int intrinsicWidth = mStateProgressDrawable.getIntrinsicWidth();
+        mStateProgressDrawable.setCurrentStateNumber(currentStateNumber);
+        requestLayoutIfResized(intrinsicWidth);
+        onStateUpdated();
     }
 
     public void setMaxStateNumber(int maximumState) {
-        mMaxStateNumber = maximumState;
-        validateStateNumber(mCurrentStateNumber);
-        updateCheckAllStatesValues(mEnableAllStatesCompleted);
-        recalculateCellParams();
-        recalculateBarState();
-        invalidate();
+        StateProgressRecorder.record(mRecorderId, StateProgressRecorder.EVENT_SET_MAX_STATE, maximumState);
+        int intrinsicWidth = mStateProgressDrawable.getIntrinsicWidth();
+        mStateProgressDrawable.setMaxStateNumber(maximumState);
+        requestLayoutIfResized(intrinsicWidth);
+        onStateUpdated();
     }
 
-    public void setStateSize(float stateSize) {
-        mStateSize = convertDpToPixel(stateSize);
-        mIsStateSizeSet = true;
-        resetStateSizeValues();
+    /**
+     * @see StateProgressDrawable#setStateNumbers(int, int)
+     */
+    public void setStateNumbers(int currentStateNumber, int maximumState) {
+        StateProgressRecorder.record(mRecorderId, StateProgressRecorder.EVENT_SET_STATE_NUMBERS, currentStateNumber, maximumState);
+        int intrinsicWidth = mStateProgressDrawable.getIntrinsicWidth();
+        mStateProgressDrawable.setStateNumbers(currentStateNumber, maximumState);
+        requestLayoutIfResized(intrinsicWidth);
+        onStateUpdated();
     }
 
-    private void resetStateSizeValues() {
-
-        resolveStateSize(mIsStateSizeSet, mIsStateTextSizeSet);
-
-        mStateNumberForegroundPaint.setTextSize(mStateNumberTextSize);
-        mStateNumberBackgroundPaint.setTextSize(mStateNumberTextSize);
-        mStateCheckedForegroundPaint.setTextSize(mStateNumberTextSize);
-
-        mStateRadius = mStateSize / 2;
-
-        validateLineThickness(mStateLineThickness);
-
-        mBackgroundPaint.setStrokeWidth(mStateLineThickness);
-        mForegroundPaint.setStrokeWidth(mStateLineThickness);
-        requestLayout();
+    /**
+     * @see StateProgressDrawable#applyLayout(StateProgressLayout)
+     */
+    public boolean applyLayout(StateProgressLayout layout) {
+        StateProgressRecorder.record(mRecorderId, StateProgressRecorder.EVENT_APPLY_LAYOUT, layout.getCurrentStateNumber(), layout.getMaxStateNumber());
+        int intrinsicWidth = mStateProgressDrawable.getIntrinsicWidth();
+        if (!mStateProgressDrawable.applyLayout(layout)) {
+            return false;
+        }
+        requestLayoutIfResized(intrinsicWidth);
+        onStateUpdated();
+        return true;
     }
 
-    public void setStateDescriptionSize(float stateDescriptionSize) {
-        mStateDescriptionSize = convertSpToPixel(stateDescriptionSize);
-        mCurrentStateDescriptionPaint.setTextSize(mStateDescriptionSize);
-        mStateDescriptionPaint.setTextSize(mStateDescriptionSize);
-        requestLayout();
-    }
+    /**
+     * Attaches the bar to the session with the id, typically one per multi screen flow. The bar
+     * takes over the state of the session when it has one, keeps the session up to date, and
+     * skips the attach animation when the session was already animated to the current state.
+     */
+    public void attachToSession(String sessionId) {
+        mSession = ProgressSession.get(sessionId);
 
-    private void updateCheckAllStatesValues(boolean enableAllStatesCompleted) {
-        if (enableAllStatesCompleted) {
-            mCheckStateCompleted = true;
-            mCurrentStateNumber = mMaxStateNumber;
-            mStateDescriptionPaint.setColor(mCurrentStateDescriptionPaint.getColor());
+        if (mSession.hasState()) {
+            mSession.applyTo(mStateProgressDrawable);
         } else {
-            mStateDescriptionPaint.setColor(mStateDescriptionPaint.getColor());
+            mSession.update(mStateProgressDrawable);
         }
     }
 
+    public void detachFromSession() {
+        mSession = null;
+    }
 
-    public void enableAnimationToCurrentState(boolean animateToCurrentProgressState) {
-        this.mAnimateToCurrentProgressState = animateToCurrentProgressState;
-
-        if (mAnimateToCurrentProgressState && mAnimator == null) {
-            startAnimator();
+    /**
+     * Measures the time spent in each state with the tracker, null to stop. The tracker can be
+     * handed from bar to bar within a flow, a state it already measures keeps its start time.
+     */
+    public void setDwellTracker(StateDwellTracker dwellTracker) {
+        mDwellTracker = dwellTracker;
+        if (dwellTracker != null) {
+            dwellTracker.onStateNumberChanged(mStateProgressDrawable.getCurrentStateNumber());
         }
-
-        invalidate();
     }
 
-    private void validateStateNumber(int stateNumber) {
-        if (stateNumber > mMaxStateNumber) {
-            throw new IllegalStateException("State number (" + stateNumber + ") cannot be greater than total number of states " + mMaxStateNumber);
+    private void onStateUpdated() {
+        if (mDwellTracker != null) {
+            mDwellTracker.onStateNumberChanged(mStateProgressDrawable.getCurrentStateNumber());
+        }
+        if (mSession != null) {
+            mSession.update(mStateProgressDrawable);
         }
     }
 
+    /**
+     * Sets the status of a state, e.g. {@link StateStatus#ERROR}, overriding the one derived
+     * from the current state number.
+     *
+     * @param stateNumber state number, from 1 to the maximum state number
+     * @param status      one of {@link StateStatus}, {@link StateStatus#AUTO} to derive it again
+     */
+    public void setStateStatus(int stateNumber, int status) {
+        mStateProgressDrawable.setStateStatus(stateNumber, status);
+    }
 
-    public void setDescriptionTopSpaceIncrementer(float spaceIncrementer) {
-        mDescTopSpaceIncrementer = spaceIncrementer;
-        requestLayout();
+    public int getStateStatus(int stateNumber) {
+        return mStateProgressDrawable.getStateStatus(stateNumber);
     }
 
-    public void setUnit(String unitLabel) {
-        this.unitLabel = unitLabel;
+    public void clearStateStatuses() {
+        mStateProgressDrawable.clearStateStatuses();
     }
 
+    public void setStatusColor(int status, int color) {
+        mStateProgressDrawable.setStatusColor(status, color);
+    }
 
-    private Paint setPaintAttributes(float strokeWidth, int color, Paint.Style style) {
-        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        paint.setStyle(style);
-        paint.setStrokeWidth(strokeWidth);
-        paint.setColor(color);
-        return paint;
+    public void setStatusGlyph(int status, String glyph) {
+        mStateProgressDrawable.setStatusGlyph(status, glyph);
     }
 
-    private Paint setPaintAttributes(float textSize, int color, Typeface typeface) {
-        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        paint.setStyle(Paint.Style.FILL_AND_STROKE);
-        paint.setTextAlign(Paint.Align.CENTER);
-        paint.setTextSize(textSize);
-        paint.setColor(color);
-        paint.setTypeface(typeface);
-        return paint;
+    /**
+     * Sets the progress made within the current state. The line between the current and the
+     * next state is filled proportionally. Only that line is redrawn, and updates smaller than
+     * a pixel are skipped.
+     *
+     * @param fraction progress within the current state, from 0 to 1
+     */
+    public void setStateProgressFraction(float fraction) {
+        StateProgressRecorder.record(mRecorderId, StateProgressRecorder.EVENT_SET_FRACTION, (int) (fraction * 1000));
+        mStateProgressDrawable.setStateProgressFraction(fraction);
+        onStateUpdated();
     }
 
-    private void initStateProgressBar(Context context) {
+    public float getStateProgressFraction() {
+        return mStateProgressDrawable.getStateProgressFraction();
+    }
 
-        mBackgroundColor = ContextCompat.getColor(context, R.color.background_color);
-        mForegroundColor = ContextCompat.getColor(context, R.color.foreground_color);
-        mStateNumberBackgroundColor = ContextCompat.getColor(context, R.color.background_text_color);
-        mStateNumberForegroundColor = ContextCompat.getColor(context, R.color.foreground_text_color);
-        mCurrentStateDescriptionColor = ContextCompat.getColor(context, R.color.foreground_color);
-        mStateDescriptionColor = ContextCompat.getColor(context, R.color.background_text_color);
+    /**
+     * Expands the current state into sub-steps, drawn as small markers along its line to the
+     * next state. Collapsed again when the current state changes.
+     *
+     * @param subStepCount          number of sub-steps, 0 to collapse
+     * @param completedSubStepCount number of completed sub-steps
+     */
+    public void setCurrentStateSubSteps(int subStepCount, int completedSubStepCount) {
+        mStateProgressDrawable.setCurrentStateSubSteps(subStepCount, completedSubStepCount);
+    }
 
-        mStateSize = 0.0f;
-        mStateLineThickness = 4.0f;
-        mStateNumberTextSize = 0.0f;
-        mStateDescriptionSize = 15f;
+    public void setStateSize(float stateSize) {
+        mStateProgressDrawable.setStateSize(stateSize);
+        requestLayout();
+    }
 
-        mMaxStateNumber = StateNumber.FIVE.getValue();
-        mCurrentStateNumber = StateNumber.ZERO.getValue();
+    public void setStateDescriptionSize(float stateDescriptionSize) {
+        mStateProgressDrawable.setStateDescriptionSize(stateDescriptionSize);
+        requestLayout();
+    }
 
-        mSpacing = 4.0f;
 
-        mDescTopSpaceDecrementer = 0.0f;
-        mDescTopSpaceIncrementer = 0.0f;
+    public void setAnimationDuration(int animDuration) {
+        mAnimDuration = animDuration;
+    }
 
-        mCheckStateCompleted = false;
-        mAnimateToCurrentProgressState = false;
-        mEnableAllStatesCompleted = false;
+    public void setAnimationStartDelay(int animStartDelay) {
+        mAnimStartDelay = animStartDelay;
+    }
 
-        mAnimStartDelay = 100;
-        mAnimDuration = 4000;
+    /**
+     * Uses the style of the template bar, see {@link StateProgressDrawable#shareStyle}.
+     */
+    public void shareStyle(StateProgressBar template) {
+        mStateProgressDrawable.shareStyle(template.mStateProgressDrawable);
+        requestLayout();
+    }
 
+    void setGroup(StateProgressBarGroup group, Object id) {
+        mGroup = group;
+        mGroupId = id;
     }
 
+    void setGroupUpdateDeferred(boolean deferred) {
+        if (mIsGroupUpdateDeferred == deferred) {
+            return;
+        }
 
-    private void resolveStateSize() {
-        if (mStateSize == 0 && mStateNumberTextSize == 0) {
-            mIsStateSizeSet = false;
-            mIsStateTextSizeSet = false;
-            resolveStateSize(mIsStateSizeSet, mIsStateTextSizeSet);
+        mIsGroupUpdateDeferred = deferred;
+        if (!ViewCompat.isAttachedToWindow(this)) {
+            return;
+        }
+        if (deferred) {
+            getViewTreeObserver().addOnPreDrawListener(mGroupUpdateListener);
+        } else {
+            removeGroupUpdateListener();
+        }
+    }
 
-        } else if (mStateSize != 0 && mStateNumberTextSize != 0) {
-            mIsStateSizeSet = true;
-            mIsStateTextSizeSet = true;
-            resolveStateSize(mIsStateSizeSet, mIsStateTextSizeSet);
+    private void removeGroupUpdateListener() {
+        ViewTreeObserver observer = getViewTreeObserver();
+        if (observer.isAlive()) {
+            observer.removeOnPreDrawListener(mGroupUpdateListener);
+        }
+    }
 
-        } else if (mStateSize == 0 && mStateNumberTextSize != 0) {
-            mIsStateSizeSet = false;
-            mIsStateTextSizeSet = true;
-            resolveStateSize(mIsStateSizeSet, mIsStateTextSizeSet);
+    public void enableAnimationToCurrentState(boolean animateToCurrentProgressState) {
+        this.mAnimateToCurrentProgressState = animateToCurrentProgressState;
 
-        } else if (mStateSize != 0 && mStateNumberTextSize == 0) {
-            mIsStateSizeSet = true;
-            mIsStateTextSizeSet = false;
-            resolveStateSize(mIsStateSizeSet, mIsStateTextSizeSet);
+        if (mAnimateToCurrentProgressState && mAnimator == null) {
+            startAnimator();
         }
+        updateLevelOfDetail();
 
+        invalidate();
     }
 
-    private void resolveStateSize(boolean isStateSizeSet, boolean isStateTextSizeSet) {
-        if (!isStateSizeSet && !isStateTextSizeSet) {
-            mStateSize = convertDpToPixel(DEFAULT_STATE_SIZE);
-            mStateNumberTextSize = convertSpToPixel(DEFAULT_TEXT_SIZE);
-
-        } else if (isStateSizeSet && isStateTextSizeSet) {
-            validateStateSize();
 
-        } else if (!isStateSizeSet && isStateTextSizeSet) {
-            mStateSize = mStateNumberTextSize + mStateNumberTextSize / 2;
+    public void setDescriptionTopSpaceIncrementer(float spaceIncrementer) {
+        mStateProgressDrawable.setDescriptionTopSpaceIncrementer(spaceIncrementer);
+        requestLayout();
+    }
 
-        } else if (isStateSizeSet && !isStateTextSizeSet) {
-            mStateNumberTextSize = mStateSize - (mStateSize * 0.375f);
-        }
+    public void setUnit(String unitLabel) {
+        int intrinsicWidth = mStateProgressDrawable.getIntrinsicWidth();
+        mStateProgressDrawable.setUnit(unitLabel);
+        requestLayoutIfResized(intrinsicWidth);
+    }
 
+    /**
+     * Sets the formatter used for the value of each state, e.g. {@link StateLabelFormatters#bytes}.
+     *
+     * @param stateLabelFormatter formatter to use, or null for plain values
+     */
+    public void setStateLabelFormatter(StateLabelFormatter stateLabelFormatter) {
+        int intrinsicWidth = mStateProgressDrawable.getIntrinsicWidth();
+        mStateProgressDrawable.setStateLabelFormatter(stateLabelFormatter);
+        requestLayoutIfResized(intrinsicWidth);
     }
 
-    private void drawCircles(Canvas canvas, Paint paint, int startIndex, int endIndex, float radius) {
-        for (int i = startIndex; i < endIndex; i++) {
-            canvas.drawCircle(mPaddingHorizontal + mCellWidth * (i + 1) - (mCellWidth / 2), mCellHeight / 2, radius, paint);
+    /**
+     * requests a layout when the width of the bar wraps its content and the content got wider
+     * or narrower
+     */
+    private void requestLayoutIfResized(int oldIntrinsicWidth) {
+        if (mIsWidthWrapped && mStateProgressDrawable.getIntrinsicWidth() != oldIntrinsicWidth) {
+            requestLayout();
         }
     }
 
-    @Override
-    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
-        super.onSizeChanged(w, h, oldw, oldh);
-        recalculateCellParams();
+    public StateLabelFormatter getStateLabelFormatter() {
+        return mStateProgressDrawable.getStateLabelFormatter();
     }
 
-    private void recalculateCellParams() {
-        mPaddingHorizontal = getWidth()*0f;
-        mCellWidth = (getWidth() - mPaddingHorizontal*2) / getCellsNumber();
-        mNextCellWidth = mCellWidth;
+    /**
+     * Draws circles, gap dots and labels as pre-rasterized bitmaps shared by all bars.
+     * Useful when the bar is drawn on a software canvas, e.g. exported to a bitmap.
+     */
+    public void setSpriteRenderingEnabled(boolean enabled) {
+        mStateProgressDrawable.setSpriteRenderingEnabled(enabled);
     }
 
-    private int getCellsNumber() {
-        return Math.min(mMaxStateNumber, StateNumber.FIVE.getValue());
+    /**
+     * Draws the bar with a handful of batched canvas calls instead of several per state,
+     * which keeps the display list small.
+     */
+    public void setBatchedRenderingEnabled(boolean enabled) {
+        mStateProgressDrawable.setBatchedRenderingEnabled(enabled);
     }
 
-    @Override
-    protected void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
+    /**
+     * Drops labels, glyphs, gap dots and anti-aliasing while the detail can't be seen: when the
+     * bar is scrolled fast, e.g. flung in a list, when scrolling drops frames, and during the
+     * animation played when the bar is shown. Full detail returns with a single redraw once the
+     * motion settles.
+     * <p>
+     * Scrolling is detected from the scroll events of the window, so it works in any scrolling
+     * container, including RecyclerView.
+     */
+    public void setLevelOfDetailEnabled(boolean enabled) {
+        if (mIsLevelOfDetailEnabled == enabled) {
+            return;
+        }
 
-        drawState(canvas);
+        mIsLevelOfDetailEnabled = enabled;
+        if (ViewCompat.isAttachedToWindow(this)) {
+            if (enabled) {
+                getViewTreeObserver().addOnScrollChangedListener(mScrollListener);
+            } else {
+                stopTrackingScroll();
+            }
+        }
+        updateLevelOfDetail();
     }
 
-    @Override
-    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+    public boolean isLevelOfDetailEnabled() {
+        return mIsLevelOfDetailEnabled;
+    }
 
-        int height = getDesiredHeight();
-        int width = MeasureSpec.getSize(widthMeasureSpec);
+    /**
+     * Estimates the speed of the bar from the distance it moved in the window since the previous
+     * scroll event. Events come at most once per frame, so their spacing is the frame delta.
+     */
+    private void onWindowScrolled() {
+        long now = SystemClock.uptimeMillis();
+        getLocationInWindow(mWindowLocation);
+        int distance = Math.abs(mWindowLocation[0] - mLastWindowX) + Math.abs(mWindowLocation[1] - mLastWindowY);
+        long elapsed = now - mLastScrollTime;
+
+        if (mLastScrollTime != 0 && elapsed > 0 && elapsed < MOTION_EVENT_GAP_MILLIS && distance > 0) {
+            boolean isFast = distance * 1000f / elapsed >= mFastScrollVelocity;
+            if (isFast || elapsed > SLOW_FRAME_MILLIS) {
+                mIsScrolling = true;
+            }
+        }
 
-        setMeasuredDimension(width, height);
+        mLastScrollTime = now;
+        mLastWindowX = mWindowLocation[0];
+        mLastWindowY = mWindowLocation[1];
 
-        mCellHeight = getCellHeight();
+        if (mIsScrolling) {
+            updateLevelOfDetail();
+            removeCallbacks(mSettleRunnable);
+            postDelayed(mSettleRunnable, SETTLE_DELAY_MILLIS);
+        }
+    }
 
+    private void stopTrackingScroll() {
+        ViewTreeObserver observer = getViewTreeObserver();
+        if (observer.isAlive()) {
+            observer.removeOnScrollChangedListener(mScrollListener);
+        }
+        removeCallbacks(mSettleRunnable);
+        mIsScrolling = false;
+        mLastScrollTime = 0;
     }
 
-    private int getDesiredHeight() {
-        return (int) (2 * EMPTY_CIRCLE_SCALE_RATE * mStateRadius) + (int) (1.3 * mStateDescriptionSize) + (int) (mSpacing) - (int) (mDescTopSpaceDecrementer) + (int) (mDescTopSpaceIncrementer);  // mStageHeight = mCellHeight + ( 2 * description Text Size)
+    private void updateLevelOfDetail() {
+        mStateProgressDrawable.setReducedDetail(mIsLevelOfDetailEnabled && (mIsScrolling || isShowAnimationRunning()));
     }
 
-    private int getCellHeight() {
-        return (int) (2 * EMPTY_CIRCLE_SCALE_RATE * mStateRadius) + (int) (mSpacing);
+    private boolean isShowAnimationRunning() {
+        return mAnimateToCurrentProgressState && mAnimator != null;
     }
 
-    private void drawState(Canvas canvas) {
-        if (mMaxStateNumber > 0) {
-            for (int i=0; i<states.length; i++){
-                State state = states[i];
-                float radius = state.filled ? mStateRadius : mStateRadius * EMPTY_CIRCLE_SCALE_RATE;
-                Paint paint = state.filled ? mForegroundPaint : mBackgroundPaint;
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        mStateProgressDrawable.setBounds(0, 0, w, h);
+    }
 
-                drawCircles(canvas, paint, i, i+1, radius);
-                drawStateDescriptionText(canvas, mStateDescriptionPaint, i, state.value);
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
 
-                boolean hasGapWithNext = hasGap(i,i+1);
-                boolean hasGapWithPrev = hasGap(i-1,i);
-                if (hasGapWithNext){
-                    drawGap(canvas, mBackgroundPaint, i, mStateRadius * EMPTY_CIRCLE_SCALE_RATE);
-                }
-                drawLines(canvas, mForegroundPaint, i, hasGapWithPrev, hasGapWithNext, radius);
-            }
+        if (!StateProgressRecorder.isEnabled()) {
+            mStateProgressDrawable.draw(canvas);
+            return;
         }
+
+        long start = System.nanoTime();
+        mStateProgressDrawable.draw(canvas);
+        StateProgressRecorder.record(mRecorderId, StateProgressRecorder.EVENT_DRAW, (int) ((System.nanoTime() - start) / 1000));
     }
 
-    private boolean hasGap(int i, int j){
-        return i >= 0 && j >= 0 && states.length > i && states.length > j && Math.abs(states[i].value - states[j].value) > 1;
+    @Override
+    public void requestLayout() {
+        StateProgressRecorder.record(mRecorderId, StateProgressRecorder.EVENT_REQUEST_LAYOUT, 0);
+        super.requestLayout();
     }
 
-    private void recalculateBarState() {
-        int cellsNumber = getCellsNumber();
-        states = new State[cellsNumber];
+    int getRecorderId() {
+        return mRecorderId;
+    }
 
-        for (int i=0; i<states.length; i++){
-            int value;
-            if (i == 0){
-                value = mMaxStateNumber;
-            }
-            else {
-                if (mMaxStateNumber - mCurrentStateNumber < cellsNumber - 1){
-                    value = mMaxStateNumber - i;
-                }
-                else if (mCurrentStateNumber < cellsNumber - 2){
-                    value = cellsNumber - i;
-                }
-                else {
-                    value = (mCurrentStateNumber + 2 - i);
-                }
+    /**
+     * prints the state of the bar on one line, for {@link StateProgressRecorder#dump}
+     */
+    void dumpState(PrintWriter writer) {
+        writer.println("#" + mRecorderId + " " + getWidth() + "x" + getHeight()
+                + " state " + mStateProgressDrawable.getCurrentStateNumber() + "/" + mStateProgressDrawable.getMaxStateNumber()
+                + (mStateProgressDrawable.isStateProgressFractionSet() ? " fraction " + mStateProgressDrawable.getStateProgressFraction() : "")
+                + " sub-steps " + mStateProgressDrawable.getCurrentStateCompletedSubStepCount() + "/" + mStateProgressDrawable.getCurrentStateSubStepCount()
+                + (isShown() ? " shown" : " hidden")
+                + (mAnimator != null ? " animating" : "")
+                + (mStateProgressDrawable.isSpriteRenderingEnabled() ? " sprites" : "")
+                + (mStateProgressDrawable.isBatchedRenderingEnabled() ? " batched" : "")
+                + (mStateProgressDrawable.isReducedDetail() ? " reduced-detail" : "")
+                + (mSession != null ? " session " + mSession.getId() : ""));
+    }
+
+    /**
+     * Wraps the width around the labels and circles, see {@link StateProgressDrawable#getIntrinsicWidth()}.
+     * The last measurements are cached, measuring again with the same specs and content, e.g.
+     * in another pass of the same frame or after resizing back to a previous width, is a lookup.
+     */
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int contentVersion = mStateProgressDrawable.getContentVersion();
+        mIsWidthWrapped = MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.EXACTLY;
+
+        for (int i = 0; i < mMeasureCacheCount; i++) {
+            if (mMeasureCacheKeys[i * 3] == widthMeasureSpec && mMeasureCacheKeys[i * 3 + 1] == heightMeasureSpec
+                    && mMeasureCacheKeys[i * 3 + 2] == contentVersion) {
+                setMeasuredDimension(mMeasureCacheSizes[i * 2], mMeasureCacheSizes[i * 2 + 1]);
+                return;
             }
-            boolean filled = value <= mCurrentStateNumber;
-            states[cellsNumber - i -1] = new State(value,filled);
         }
-    }
 
-    private void drawStartPaddingLine(Canvas canvas, Paint paint) {
-        canvas.drawLine(0, mCellHeight / 2, mPaddingHorizontal, mCellHeight / 2, paint);
-    }
+        int height = mStateProgressDrawable.getIntrinsicHeight();
+        int width = resolveSize(mStateProgressDrawable.getIntrinsicWidth(), widthMeasureSpec);
 
-    private void drawEndPaddingLine(Canvas canvas, Paint paint) {
-        canvas.drawLine(getWidth() - mPaddingHorizontal, mCellHeight / 2, getWidth(), mCellHeight / 2, paint);
-    }
+        int i = mMeasureCacheNext;
+        mMeasureCacheNext = (mMeasureCacheNext + 1) % MEASURE_CACHE_SIZE;
+        mMeasureCacheCount = Math.min(mMeasureCacheCount + 1, MEASURE_CACHE_SIZE);
+        mMeasureCacheKeys[i * 3] = widthMeasureSpec;
+        mMeasureCacheKeys[i * 3 + 1] = heightMeasureSpec;
+        mMeasureCacheKeys[i * 3 + 2] = contentVersion;
+        mMeasureCacheSizes[i * 2] = width;
+        mMeasureCacheSizes[i * 2 + 1] = height;
 
-    private void drawLines(Canvas canvas, Paint paint, int index, boolean leftGap, boolean rightGap, float radius) {
-        float cellStart = mPaddingHorizontal + mCellWidth * index;
-        float cellEnd = mPaddingHorizontal + mCellWidth * (index + 1);
-        float cellCenter = cellStart + mCellWidth / 2;
-        float circleStart = cellCenter - radius;
-        float circleEnd = cellCenter + radius;
+        setMeasuredDimension(width, height);
+    }
 
-        if (!leftGap) {
-            canvas.drawLine(cellStart, mCellHeight / 2, circleStart - 1, mCellHeight / 2, paint);
-        }
-        if (!rightGap) {
-            canvas.drawLine(circleEnd + 1, mCellHeight / 2, cellEnd, mCellHeight / 2, paint);
-        }
+    /**
+     * @see StateProgressDrawable#setNonUniformCellWidthsEnabled(boolean)
+     */
+    public void setNonUniformCellWidthsEnabled(boolean enabled) {
+        mStateProgressDrawable.setNonUniformCellWidthsEnabled(enabled);
+        requestLayout();
     }
 
-    private void drawGap(Canvas canvas, Paint paint, Integer gapAfter, float radius) {
-        if (gapAfter != null){
-            float gapWidth = mCellWidth - radius*2;
-            for (int j=0; j<3; j++){
-                canvas.drawCircle(mPaddingHorizontal + mCellWidth * (gapAfter+1) + gapWidth/4 *(j-1), mCellHeight/2, 2, paint);
-            }
+    /**
+     * Alpha can be applied to each primitive without an offscreen layer only when no pixel is
+     * painted twice, see {@link StateProgressDrawable#hasOverlappingPrimitives()}.
+     */
+    @Override
+    public boolean hasOverlappingRendering() {
+        if (getBackground() == null && !mStateProgressDrawable.hasOverlappingPrimitives()) {
+            return false;
         }
+        return super.hasOverlappingRendering();
     }
 
-    private void drawStateDescriptionText(Canvas canvas, Paint paint, int i, int value) {
-        int xPos;
-        int yPos;
-        xPos = (int) (mPaddingHorizontal + mCellWidth*(i+1) - (mCellWidth / 2));
-        yPos = (int) (mCellHeight + mStateDescriptionSize - mSpacing - mDescTopSpaceDecrementer + mDescTopSpaceIncrementer);//mSpacing = mStateNumberForegroundPaint.getTextSize()
-
-        canvas.drawText(String.valueOf(value) + (i == states.length - 1 ? (" " + unitLabel) : ""), xPos, yPos, paint);
+    @Override
+    protected boolean verifyDrawable(Drawable who) {
+        return who == mStateProgressDrawable || super.verifyDrawable(who);
     }
 
     private void startAnimator() {
@@ -609,6 +711,18 @@ public class StateProgressBar extends View {
         mAnimator.start();
     }
 
+    /**
+     * starts the animation played when the bar is shown, unless its session already played it
+     * for the current state
+     */
+    private void startShowAnimator() {
+        if (mSession != null && mSession.isAnimated(mStateProgressDrawable.getCurrentStateNumber())) {
+            mAnimEndXPos = mSession.getAnimEndXPos();
+            return;
+        }
+        startAnimator();
+    }
+
     private void stopAnimation() {
         if (mAnimator != null) {
             mAnimator.stop();
@@ -644,63 +758,86 @@ public class StateProgressBar extends View {
             } else {
                 stop();
                 enableAnimationToCurrentState(false);
+                if (mSession != null) {
+                    mSession.onAnimationFinished(mStateProgressDrawable.getCurrentStateNumber(), mAnimEndXPos);
+                }
             }
 
         }
 
         public void start() {
+            StateProgressRecorder.record(mRecorderId, StateProgressRecorder.EVENT_ANIMATION_START, 0);
             mRestartAnimation = true;
             postDelayed(this, mAnimStartDelay);
+            updateLevelOfDetail();
         }
 
         public void stop() {
+            StateProgressRecorder.record(mRecorderId, StateProgressRecorder.EVENT_ANIMATION_STOP, 0);
             removeCallbacks(this);
             mAnimator = null;
+            updateLevelOfDetail();
         }
 
     }
 
 
-    private float convertDpToPixel(float dp) {
-        final float scale = getResources().getDisplayMetrics().density;
-        return dp * scale;
-    }
-
-    private float convertSpToPixel(float sp) {
-        final float scale = getResources().getDisplayMetrics().scaledDensity;
-        return sp * scale;
-    }
-
-
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
 
-        startAnimator();
+        StateProgressRecorder.register(this);
+        if (mIsLevelOfDetailEnabled) {
+            getViewTreeObserver().addOnScrollChangedListener(mScrollListener);
+        }
+        if (mIsGroupUpdateDeferred) {
+            getViewTreeObserver().addOnPreDrawListener(mGroupUpdateListener);
+        }
+        if (mGroup != null) {
+            mGroup.onBarShown(mGroupId, this);
+        }
+        startShowAnimator();
     }
 
 
     @Override
     protected void onDetachedFromWindow() {
         stopAnimation();
+        StateProgressRecorder.unregister(this);
+        if (mIsLevelOfDetailEnabled) {
+            stopTrackingScroll();
+            updateLevelOfDetail();
+        }
+        if (mIsGroupUpdateDeferred) {
+            removeGroupUpdateListener();
+        }
 
         super.onDetachedFromWindow();
     }
 
 
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+
+        if (mGroup != null && visibility == View.VISIBLE) {
+            mGroup.onBarShown(mGroupId, this);
+        }
+    }
+
     @Override
     public void setVisibility(int visibility) {
         super.setVisibility(visibility);
         switch (visibility) {
             case View.VISIBLE:
 
-                startAnimator();
+                startShowAnimator();
 
                 break;
 
             default:
 
-                startAnimator();
+                startShowAnimator();
 
                 break;
         }
@@ -724,6 +861,10 @@ public class StateProgressBar extends View {
 
         bundle.putBoolean(ANIMATE_TO_CURRENT_PROGRESS_STATE_KEY, this.mAnimateToCurrentProgressState);
 
+        bundle.putFloat(STATE_PROGRESS_FRACTION_KEY, mStateProgressDrawable.getStateProgressFraction());
+
+        bundle.putBoolean(IS_STATE_PROGRESS_FRACTION_SET_KEY, mStateProgressDrawable.isStateProgressFractionSet());
+
 
         return bundle;
     }
@@ -745,18 +886,11 @@ public class StateProgressBar extends View {
 
             mAnimateToCurrentProgressState = bundle.getBoolean(ANIMATE_TO_CURRENT_PROGRESS_STATE_KEY);
 
+            mStateProgressDrawable.restoreStateProgressFraction(bundle.getFloat(STATE_PROGRESS_FRACTION_KEY),
+                    bundle.getBoolean(IS_STATE_PROGRESS_FRACTION_SET_KEY));
+
             state = bundle.getParcelable(SUPER_STATE_KEY);
         }
         super.onRestoreInstanceState(state);
     }
-
-    private class State{
-        private int value;
-        private boolean filled;
-
-        public State(int value, boolean filled) {
-            this.value = value;
-            this.filled = filled;
-        }
-    }
 }
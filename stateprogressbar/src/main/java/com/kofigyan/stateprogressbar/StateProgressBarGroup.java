@@ -0,0 +1,233 @@
+package com.kofigyan.stateprogressbar;
+
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Controls many bars at once, e.g. a dashboard updated by server pushes. Updates posted from any
+ * thread are applied together in one main thread pass at the start of the next frame. Bars whose
+ * state did not change are skipped, and bars that are not visible on screen, e.g. scrolled out of
+ * their container, get their update when they come into view. Registered bars can share the
+ * style of one template bar.
+ */
+
+public class StateProgressBarGroup {
+
+    private static final class Update {
+        final int currentStateNumber;
+        final int maxStateNumber;
+
+        Update(int currentStateNumber, int maxStateNumber) {
+            this.currentStateNumber = currentStateNumber;
+            this.maxStateNumber = maxStateNumber;
+        }
+    }
+
+    private final Map<Object, StateProgressBar> mBars = new HashMap<Object, StateProgressBar>();
+
+    /**
+     * updates of bars that were not visible when their batch was applied
+     */
+    private final Map<Object, Update> mDeferredUpdates = new HashMap<Object, Update>();
+
+    private final Rect mVisibleRect = new Rect();
+
+    /**
+     * updates posted since the last pass, guarded by itself
+     */
+    private Map<Object, Update> mPendingUpdates = new HashMap<Object, Update>();
+    private boolean mIsPassScheduled;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mPassRunnable = new Runnable() {
+        @Override
+        public void run() {
+            applyPendingUpdates();
+        }
+    };
+    private Object mFrameCallback;
+
+    private StateProgressBar mStyle;
+
+    private boolean mIsAnimationEnabled;
+    private int mAnimDuration = 4000;
+
+    /**
+     * Adds the bar under the id, it takes over the style of the group when one is set. Must be
+     * called from the main thread.
+     */
+    public void register(Object id, StateProgressBar bar) {
+        StateProgressBar previous = mBars.put(id, bar);
+        if (previous != null && previous != bar) {
+            previous.setGroupUpdateDeferred(false);
+            previous.setGroup(null, null);
+        }
+        bar.setGroup(this, id);
+
+        if (mStyle != null) {
+            bar.shareStyle(mStyle);
+        }
+    }
+
+    public void unregister(Object id) {
+        StateProgressBar bar = mBars.remove(id);
+        mDeferredUpdates.remove(id);
+        if (bar != null) {
+            bar.setGroupUpdateDeferred(false);
+            bar.setGroup(null, null);
+        }
+    }
+
+    /**
+     * Makes every registered bar share the style of the template, see
+     * {@link StateProgressDrawable#shareStyle}. Call {@link #invalidateStyle()} after changing
+     * the style of the template. Must be called from the main thread.
+     */
+    public void setStyle(StateProgressBar template) {
+        mStyle = template;
+        for (StateProgressBar bar : mBars.values()) {
+            bar.shareStyle(template);
+        }
+    }
+
+    /**
+     * Redraws every registered bar after the shared style was changed through the template.
+     */
+    public void invalidateStyle() {
+        if (mStyle == null) {
+            return;
+        }
+        for (StateProgressBar bar : mBars.values()) {
+            bar.shareStyle(mStyle);
+        }
+    }
+
+    /**
+     * Animates the bars to their new current state, all of them starting in the same frame and
+     * with the same duration.
+     */
+    public void setAnimationEnabled(boolean enabled) {
+        mIsAnimationEnabled = enabled;
+    }
+
+    public void setAnimationDuration(int animDuration) {
+        mAnimDuration = animDuration;
+    }
+
+    /**
+     * Queues an update of the bar registered under the id, applied with the other updates posted
+     * before the next frame. A later update of the same bar replaces the earlier one. Can be
+     * called from any thread.
+     */
+    public void setStateNumbers(Object id, int currentStateNumber, int maxStateNumber) {
+        if (currentStateNumber > maxStateNumber) {
+            throw new IllegalStateException("State number (" + currentStateNumber + ") cannot be greater than total number of states " + maxStateNumber);
+        }
+
+        synchronized (this) {
+            mPendingUpdates.put(id, new Update(currentStateNumber, maxStateNumber));
+            if (mIsPassScheduled) {
+                return;
+            }
+            mIsPassScheduled = true;
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            postFrameCallback();
+        } else {
+            mHandler.post(mPassRunnable);
+        }
+    }
+
+    private void postFrameCallback() {
+        // the choreographer is per thread, it has to be obtained on the main thread
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mFrameCallback == null) {
+                    mFrameCallback = new Choreographer.FrameCallback() {
+                        @Override
+                        public void doFrame(long frameTimeNanos) {
+                            applyPendingUpdates();
+                        }
+                    };
+                }
+                Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) mFrameCallback);
+            }
+        });
+    }
+
+    private void applyPendingUpdates() {
+        Map<Object, Update> updates;
+        synchronized (this) {
+            updates = mPendingUpdates;
+            mPendingUpdates = new HashMap<Object, Update>();
+            mIsPassScheduled = false;
+        }
+
+        for (Map.Entry<Object, Update> entry : updates.entrySet()) {
+            Object id = entry.getKey();
+            StateProgressBar bar = mBars.get(id);
+            if (bar == null) {
+                continue;
+            }
+
+            Update update = entry.getValue();
+            if (isUnchanged(bar, update) || isVisible(bar)) {
+                mDeferredUpdates.remove(id);
+                bar.setGroupUpdateDeferred(false);
+                if (!isUnchanged(bar, update)) {
+                    apply(bar, update);
+                }
+            } else {
+                mDeferredUpdates.put(id, update);
+                bar.setGroupUpdateDeferred(true);
+            }
+        }
+    }
+
+    /**
+     * called by a registered bar when it is attached or becomes visible, and before every frame
+     * drawn while it has a deferred update, so that it gets the update once scrolled into view
+     */
+    void onBarShown(Object id, StateProgressBar bar) {
+        Update update = mDeferredUpdates.get(id);
+        if (update != null && isVisible(bar)) {
+            mDeferredUpdates.remove(id);
+            bar.setGroupUpdateDeferred(false);
+            if (!isUnchanged(bar, update)) {
+                apply(bar, update);
+            }
+        }
+    }
+
+    /**
+     * @return whether a part of the bar is on screen, not only that it and its ancestors are
+     * visible
+     */
+    private boolean isVisible(StateProgressBar bar) {
+        return bar.isShown() && bar.getLocalVisibleRect(mVisibleRect);
+    }
+
+    private static boolean isUnchanged(StateProgressBar bar, Update update) {
+        StateProgressDrawable drawable = bar.getStateProgressDrawable();
+        return drawable.getCurrentStateNumber() == update.currentStateNumber
+                && drawable.getMaxStateNumber() == update.maxStateNumber;
+    }
+
+    private void apply(StateProgressBar bar, Update update) {
+        bar.setStateNumbers(update.currentStateNumber, update.maxStateNumber);
+
+        if (mIsAnimationEnabled) {
+            bar.setAnimationDuration(mAnimDuration);
+            bar.enableAnimationToCurrentState(true);
+        }
+    }
+
+}
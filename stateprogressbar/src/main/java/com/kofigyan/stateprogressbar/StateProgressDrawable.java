@@ -0,0 +1,1856 @@
+package com.kofigyan.stateprogressbar;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.LinearGradient;
+import android.graphics.DrawFilter;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.PaintFlagsDrawFilter;
+import android.graphics.Path;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.Shader;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.support.v4.content.ContextCompat;
+import android.util.AttributeSet;
+
+import com.kofigyan.stateprogressbar.utils.FontManager;
+import com.kofigyan.stateprogressbar.utils.LabelFormatCache;
+import com.kofigyan.stateprogressbar.utils.SpriteAtlas;
+
+/**
+ * Draws the states of a progress bar without a View. Geometry is derived from the bounds, and
+ * the level (0 - 10000) can be used to set the current state and the progress within it.
+ * <p>
+ * Drawables created from the same {@link #getConstantState()} share their style until
+ * {@link #mutate()} is called.
+ */
+
+public class StateProgressDrawable extends Drawable {
+
+    public static final float EMPTY_CIRCLE_SCALE_RATE = 1.5f;
+
+    private static final int MAX_LEVEL = 10000;
+
+    static final int MAX_CELLS_NUMBER = 5;
+
+    private static final float DEFAULT_TEXT_SIZE = 15f;
+
+    private static final DrawFilter NO_ANTI_ALIAS_FILTER = new PaintFlagsDrawFilter(Paint.ANTI_ALIAS_FLAG, 0);
+    private static final float DEFAULT_STATE_SIZE = 25f;
+
+    /**
+     * whether a state of each {@link StateStatus} is drawn as a filled or an empty circle
+     */
+    private static final boolean[] STATUS_FILLED = {false, false, true, true, true, true};
+
+    /**
+     * glyphs of the check font
+     */
+    private static final String GLYPH_CHECK = "\uf00c";
+    private static final String GLYPH_TIMES = "\uf00d";
+    private static final String GLYPH_FORWARD = "\uf04e";
+
+    private StateProgressState mState;
+    private boolean mMutated;
+
+    private State[] states;
+    private String unitLabel;
+
+    /**
+     * formats the value of each state, labels are computed whenever the window of states changes
+     */
+    private StateLabelFormatter mStateLabelFormatter = StateLabelFormatters.PLAIN;
+    private String[] mStateLabels;
+
+    /**
+     * left edge of every cell followed by the right edge of the last one
+     */
+    private float[] mCellEdges = new float[1];
+
+    /**
+     * uniform cell edges for the current width, indexed by cells number, computed once by the
+     * view drawing this drawable along with others of the same width, null when not shared
+     */
+    private float[][] mSharedCellEdges;
+
+    private float mCellHeight;
+
+    /**
+     * cells are as wide as their content plus an equal share of the remaining width
+     */
+    private boolean mIsNonUniformCellWidthsEnabled;
+
+    private float[] mStateLabelWidths;
+
+    /**
+     * incremented whenever the intrinsic size may change
+     */
+    private int mContentVersion;
+
+    private int mMaxStateNumber;
+    private int mCurrentStateNumber;
+
+    private boolean mEnableAllStatesCompleted;
+    private boolean mCheckStateCompleted;
+
+    /**
+     * explicit {@link StateStatus} of each state number, {@link StateStatus#AUTO} when unset
+     */
+    private int[] mPackedStatuses;
+
+    /**
+     * progress within the current state, fills the line towards the next state
+     */
+    private float mStateProgressFraction;
+    private boolean mIsStateProgressFractionSet;
+
+    /**
+     * end of the filled part of the fraction line as last drawn, used to skip sub-pixel updates
+     */
+    private float mDrawnFractionEndX;
+
+    /**
+     * sub-steps of the current state, drawn as markers along its line to the next state. Their
+     * positions are only computed while expanded, and lazily at draw time
+     */
+    private int mSubStepCount;
+    private int mCompletedSubStepCount;
+    private float[] mSubStepCentersX;
+    private boolean mIsSubStepLayoutDirty;
+
+    /**
+     * area to redraw for a fraction update, reported through {@link #getDirtyBounds()}
+     */
+    private final Rect mFractionDirtyBounds = new Rect();
+    private boolean mHasFractionDirtyBounds;
+
+    /**
+     * sprites of the circles, gap dots and labels, resolved from the atlas whenever the
+     * drawable or the atlas changes so that drawing is only bitmap blits
+     */
+    private SpriteAtlas mSpriteAtlas;
+    private SpriteAtlas.Sprite[] mCircleSprites;
+    private SpriteAtlas.Sprite[] mLabelSprites;
+    private SpriteAtlas.Sprite[] mGlyphSprites;
+    private SpriteAtlas.Sprite mGapDotSprite;
+    private boolean mIsSpritesDirty;
+    private int mSpriteGeneration;
+
+    /**
+     * batched rendering: all connector lines in one array and all circles and gap dots of a
+     * paint in one path, rebuilt only when the geometry changes
+     */
+    private boolean mIsBatchedRenderingEnabled;
+    private boolean mIsBatchDirty = true;
+    private float[] mLinePoints;
+    private int mLinePointsCount;
+    private final Path[] mStatusCirclesPaths = new Path[StateStatus.COUNT];
+
+    /**
+     * reduced detail: circles and lines only, without anti-aliasing
+     */
+    private boolean mIsReducedDetail;
+
+    /**
+     * gradients of the style for this drawable, from 0 to 1 along x, and the width their local
+     * matrix was last scaled to. Each drawable has its own, drawables sharing a constant state
+     * have different completed parts.
+     */
+    private Shader mForegroundShader;
+    private Shader mBackgroundShader;
+    private float mForegroundShaderWidth = Float.NaN;
+    private float mBackgroundShaderWidth = Float.NaN;
+    private final Matrix mShaderMatrix = new Matrix();
+
+    /**
+     * style and gradient version the shaders were created for
+     */
+    private StateProgressState mShaderState;
+    private int mShaderGradientVersion;
+
+    public StateProgressDrawable(Context context) {
+        this(context, null, 0);
+    }
+
+    public StateProgressDrawable(Context context, AttributeSet attrs, int defStyle) {
+        this();
+        mState = new StateProgressState(context);
+        init(context, attrs, defStyle);
+        mState.initializePainters();
+        updateCheckAllStatesValues(mEnableAllStatesCompleted);
+        recalculateBarState();
+    }
+
+    private StateProgressDrawable(StateProgressState state) {
+        this();
+        mState = state;
+        mMaxStateNumber = StateProgressBar.StateNumber.FIVE.getValue();
+        mCurrentStateNumber = StateProgressBar.StateNumber.ZERO.getValue();
+        recalculateBarState();
+    }
+
+    private StateProgressDrawable() {
+        for (int i = 0; i < mStatusCirclesPaths.length; i++) {
+            mStatusCirclesPaths[i] = new Path();
+        }
+    }
+
+    private void init(Context context, AttributeSet attrs, int defStyle) {
+
+        /**
+         * Setting default values.
+         */
+        initStateProgressDrawable(context);
+
+        mState.mStateDescriptionSize = convertSpToPixel(mState.mStateDescriptionSize);
+        mState.mStateLineThickness = convertDpToPixel(mState.mStateLineThickness);
+        mState.mSpacing = convertDpToPixel(mState.mSpacing);
+        mState.mCheckFont = FontManager.getTypeface(context, FontManager.FONTAWESOME);
+
+
+        if (attrs != null) {
+
+            final TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.StateProgressBar, defStyle, 0);
+
+            mState.mBackgroundColor = a.getColor(R.styleable.StateProgressBar_spb_stateBackgroundColor, mState.mBackgroundColor);
+            mState.mForegroundColor = a.getColor(R.styleable.StateProgressBar_spb_stateForegroundColor, mState.mForegroundColor);
+            mState.mCompletedColor = mState.mForegroundColor;
+            mState.mStateNumberBackgroundColor = a.getColor(R.styleable.StateProgressBar_spb_stateNumberBackgroundColor, mState.mStateNumberBackgroundColor);
+            mState.mStateNumberForegroundColor = a.getColor(R.styleable.StateProgressBar_spb_stateNumberForegroundColor, mState.mStateNumberForegroundColor);
+            mState.mCurrentStateDescriptionColor = a.getColor(R.styleable.StateProgressBar_spb_currentStateDescriptionColor, mState.mCurrentStateDescriptionColor);
+            mState.mStateDescriptionColor = a.getColor(R.styleable.StateProgressBar_spb_stateDescriptionColor, mState.mStateDescriptionColor);
+
+            mCurrentStateNumber = a.getInteger(R.styleable.StateProgressBar_spb_currentStateNumber, mCurrentStateNumber);
+            mMaxStateNumber = a.getInteger(R.styleable.StateProgressBar_spb_maxStateNumber, mMaxStateNumber);
+
+            mState.mStateSize = a.getDimension(R.styleable.StateProgressBar_spb_stateSize, mState.mStateSize);
+            mState.mStateNumberTextSize = a.getDimension(R.styleable.StateProgressBar_spb_stateTextSize, mState.mStateNumberTextSize);
+            mState.mStateDescriptionSize = a.getDimension(R.styleable.StateProgressBar_spb_stateDescriptionSize, mState.mStateDescriptionSize);
+            mState.mStateLineThickness = a.getDimension(R.styleable.StateProgressBar_spb_stateLineThickness, mState.mStateLineThickness);
+
+            mCheckStateCompleted = a.getBoolean(R.styleable.StateProgressBar_spb_checkStateCompleted, mCheckStateCompleted);
+            mEnableAllStatesCompleted = a.getBoolean(R.styleable.StateProgressBar_spb_enableAllStatesCompleted, mEnableAllStatesCompleted);
+
+            mState.mDescTopSpaceDecrementer = a.getDimension(R.styleable.StateProgressBar_spb_descriptionTopSpaceDecrementer, mState.mDescTopSpaceDecrementer);
+            mState.mDescTopSpaceIncrementer = a.getDimension(R.styleable.StateProgressBar_spb_descriptionTopSpaceIncrementer, mState.mDescTopSpaceIncrementer);
+
+            a.recycle();
+
+        }
+
+        resolveStateSize();
+        validateLineThickness(mState.mStateLineThickness);
+        validateStateNumber(mCurrentStateNumber);
+
+        mState.mStateRadius = mState.mStateSize / 2;
+
+    }
+
+    private void initStateProgressDrawable(Context context) {
+
+        mState.mBackgroundColor = ContextCompat.getColor(context, R.color.background_color);
+        mState.mForegroundColor = ContextCompat.getColor(context, R.color.foreground_color);
+        mState.mStateNumberBackgroundColor = ContextCompat.getColor(context, R.color.background_text_color);
+        mState.mStateNumberForegroundColor = ContextCompat.getColor(context, R.color.foreground_text_color);
+        mState.mCurrentStateDescriptionColor = ContextCompat.getColor(context, R.color.foreground_color);
+        mState.mStateDescriptionColor = ContextCompat.getColor(context, R.color.background_text_color);
+        mState.mErrorColor = ContextCompat.getColor(context, R.color.error_color);
+        mState.mSkippedColor = ContextCompat.getColor(context, R.color.skipped_color);
+        mState.mCompletedColor = mState.mForegroundColor;
+
+        mState.mStateSize = 0.0f;
+        mState.mStateLineThickness = 4.0f;
+        mState.mStateNumberTextSize = 0.0f;
+        mState.mStateDescriptionSize = 15f;
+
+        mMaxStateNumber = StateProgressBar.StateNumber.FIVE.getValue();
+        mCurrentStateNumber = StateProgressBar.StateNumber.ZERO.getValue();
+
+        mState.mSpacing = 4.0f;
+
+        mState.mDescTopSpaceDecrementer = 0.0f;
+        mState.mDescTopSpaceIncrementer = 0.0f;
+
+        mCheckStateCompleted = false;
+        mEnableAllStatesCompleted = false;
+
+    }
+
+    private void validateLineThickness(float lineThickness) {
+        float halvedStateSize = mState.mStateSize / 2;
+
+        if (lineThickness > halvedStateSize) {
+            mState.mStateLineThickness = halvedStateSize;
+        }
+    }
+
+    private void validateStateSize() {
+        if (mState.mStateSize <= mState.mStateNumberTextSize) {
+            mState.mStateSize = mState.mStateNumberTextSize + mState.mStateNumberTextSize / 2;
+        }
+    }
+
+    private void validateStateNumber(int stateNumber) {
+        if (stateNumber > mMaxStateNumber) {
+            throw new IllegalStateException("State number (" + stateNumber + ") cannot be greater than total number of states " + mMaxStateNumber);
+        }
+    }
+
+    public void setBackgroundColor(int backgroundColor) {
+        mState.mBackgroundColor = backgroundColor;
+        mState.applyColor(mState.mBackgroundPaint, mState.mBackgroundColor);
+        invalidateAll();
+    }
+
+    public void setForegroundColor(int foregroundColor) {
+        mState.mForegroundColor = foregroundColor;
+        mState.mCompletedColor = foregroundColor;
+        mState.applyColor(mState.mForegroundPaint, mState.mForegroundColor);
+        mState.applyColor(mState.mCompletedPaint, mState.mCompletedColor);
+        invalidateAll();
+    }
+
+    /**
+     * Fills the completed part of the bar, from its start to the current state or the end of the
+     * progress fraction, with a horizontal gradient. The gradient is created once per drawable and
+     * stretched over the completed part through its local matrix, so progress changes create no
+     * shader.
+     * Sprites are drawn in the foreground color.
+     *
+     * @param colors    colors of the gradient, null to use the foreground color again
+     * @param positions relative positions of the colors, null to space them evenly
+     */
+    public void setForegroundGradient(int[] colors, float[] positions) {
+        mState.mForegroundGradientColors = colors;
+        mState.mForegroundGradientPositions = positions;
+        mState.mGradientVersion++;
+        invalidateAll();
+    }
+
+    /**
+     * Draws the pending part of the bar with a horizontal gradient spanning the whole bar.
+     *
+     * @see #setForegroundGradient(int[], float[])
+     */
+    public void setBackgroundGradient(int[] colors, float[] positions) {
+        mState.mBackgroundGradientColors = colors;
+        mState.mBackgroundGradientPositions = positions;
+        mState.mGradientVersion++;
+        invalidateAll();
+    }
+
+    /**
+     * Sets the circle color of states with the status. Pending and current states use the
+     * background and foreground color.
+     */
+    public void setStatusColor(int status, int color) {
+        StateStatus.validate(status);
+        switch (status) {
+            case StateStatus.PENDING:
+                setBackgroundColor(color);
+                return;
+            case StateStatus.CURRENT:
+                mState.mForegroundColor = color;
+                mState.applyColor(mState.mForegroundPaint, color);
+                break;
+            case StateStatus.COMPLETED:
+                mState.mCompletedColor = color;
+                mState.applyColor(mState.mCompletedPaint, color);
+                break;
+            case StateStatus.ERROR:
+                mState.mErrorColor = color;
+                mState.applyColor(mState.mErrorPaint, color);
+                break;
+            case StateStatus.SKIPPED:
+                mState.mSkippedColor = color;
+                mState.applyColor(mState.mSkippedPaint, color);
+                break;
+        }
+        invalidateAll();
+    }
+
+    /**
+     * Sets the glyph of the check font drawn inside the circle of states with the status.
+     * The completed glyph is only drawn when checking completed states is enabled.
+     *
+     * @param glyph glyph to draw, or null for none
+     */
+    public void setStatusGlyph(int status, String glyph) {
+        StateStatus.validate(status);
+        mState.mStatusGlyphs[status] = glyph;
+        invalidateAll();
+    }
+
+    /**
+     * Sets the status of a state, overriding the one derived from the current state number.
+     *
+     * @param stateNumber state number, from 1 to the maximum state number
+     * @param status      one of {@link StateStatus}, {@link StateStatus#AUTO} to derive it again
+     */
+    public void setStateStatus(int stateNumber, int status) {
+        StateStatus.validate(status);
+        if (stateNumber < 1) {
+            throw new IllegalArgumentException("State number (" + stateNumber + ") must be at least 1");
+        }
+
+        int[] packedStatuses = StateStatus.pack(mPackedStatuses, stateNumber - 1, status, mMaxStateNumber);
+        if (packedStatuses == null) {
+            return;
+        }
+        mPackedStatuses = packedStatuses;
+        recalculateBarState();
+        invalidateAll();
+    }
+
+    /**
+     * @return status of the state as drawn, derived from the current state number when not set
+     */
+    public int getStateStatus(int stateNumber) {
+        int status = getExplicitStateStatus(stateNumber);
+        if (status != StateStatus.AUTO) {
+            return status;
+        }
+        if (stateNumber < mCurrentStateNumber) {
+            return StateStatus.COMPLETED;
+        }
+        return stateNumber == mCurrentStateNumber ? StateStatus.CURRENT : StateStatus.PENDING;
+    }
+
+    private int getExplicitStateStatus(int stateNumber) {
+        return StateStatus.unpack(mPackedStatuses, stateNumber - 1);
+    }
+
+    public void clearStateStatuses() {
+        mPackedStatuses = null;
+        recalculateBarState();
+        invalidateAll();
+    }
+
+    public void setStateLineThickness(float stateLineThickness) {
+        mState.mStateLineThickness = convertDpToPixel(stateLineThickness);
+        validateLineThickness(mState.mStateLineThickness);
+        mState.applyLineThickness();
+        invalidateAll();
+    }
+
+    public void setStateNumberBackgroundColor(int stateNumberBackgroundColor) {
+        mState.mStateNumberBackgroundColor = stateNumberBackgroundColor;
+        mState.applyColor(mState.mStateNumberBackgroundPaint, mState.mStateNumberBackgroundColor);
+        mState.applyColor(mState.mStateCheckedBackgroundPaint, mState.mStateNumberBackgroundColor);
+        invalidateAll();
+    }
+
+    public void setStateNumberForegroundColor(int stateNumberForegroundColor) {
+        mState.mStateNumberForegroundColor = stateNumberForegroundColor;
+        mState.applyColor(mState.mStateNumberForegroundPaint, mState.mStateNumberForegroundColor);
+        mState.applyColor(mState.mStateCheckedForegroundPaint, mState.mStateNumberForegroundColor);
+        invalidateAll();
+    }
+
+    public void setStateDescriptionColor(int stateDescriptionColor) {
+        mState.mStateDescriptionColor = stateDescriptionColor;
+        mState.applyColor(mState.mStateDescriptionPaint, mState.mStateDescriptionColor);
+        invalidateAll();
+    }
+
+    public void setCurrentStateDescriptionColor(int currentStateDescriptionColor) {
+        mState.mCurrentStateDescriptionColor = currentStateDescriptionColor;
+        mState.applyColor(mState.mCurrentStateDescriptionPaint, mState.mCurrentStateDescriptionColor);
+        invalidateAll();
+    }
+
+    public void setCurrentStateNumber(int currentStateNumber) {
+        validateStateNumber(currentStateNumber);
+        resetCurrentStateProgress(currentStateNumber);
+        mCurrentStateNumber = currentStateNumber;
+        updateCheckAllStatesValues(mEnableAllStatesCompleted);
+        recalculateBarState();
+        invalidateAll();
+    }
+
+    /**
+     * drops the progress within the current state when moving to another state
+     */
+    private void resetCurrentStateProgress(int currentStateNumber) {
+        if (mCurrentStateNumber != currentStateNumber) {
+            mStateProgressFraction = 0f;
+            mSubStepCount = 0;
+            mCompletedSubStepCount = 0;
+            mSubStepCentersX = null;
+        }
+    }
+
+    public int getCurrentStateNumber() {
+        return mCurrentStateNumber;
+    }
+
+    public void setMaxStateNumber(int maximumState) {
+        mMaxStateNumber = maximumState;
+        validateStateNumber(mCurrentStateNumber);
+        updateCheckAllStatesValues(mEnableAllStatesCompleted);
+        recalculateBarState();
+        invalidateAll();
+    }
+
+    public int getMaxStateNumber() {
+        return mMaxStateNumber;
+    }
+
+    /**
+     * Sets the current and the maximum state number at once, without validating the current
+     * state against the previous maximum. Nothing is recalculated when both are unchanged.
+     */
+    public void setStateNumbers(int currentStateNumber, int maximumState) {
+        if (currentStateNumber == mCurrentStateNumber && maximumState == mMaxStateNumber) {
+            return;
+        }
+        mMaxStateNumber = maximumState;
+        setCurrentStateNumber(currentStateNumber);
+    }
+
+    /**
+     * Adopts a layout built by a {@link StateProgressPrefetcher}: the state numbers, the state
+     * values and the formatted and measured labels are taken from it instead of being computed,
+     * and the cell edges too when it was built for the current width and cell style.
+     *
+     * @return false, leaving the drawable unchanged, when the layout was built for another unit,
+     * formatter or description size
+     */
+    public boolean applyLayout(StateProgressLayout layout) {
+        if (!layout.isCompatible(mStateLabelFormatter, unitLabel, mState.mStateDescriptionSize)) {
+            return false;
+        }
+
+        resetCurrentStateProgress(layout.mCurrentStateNumber);
+        mMaxStateNumber = layout.mMaxStateNumber;
+        mCurrentStateNumber = layout.mCurrentStateNumber;
+        updateCheckAllStatesValues(mEnableAllStatesCompleted);
+
+        int cellsNumber = layout.mStateValues.length;
+        if (states == null || states.length != cellsNumber) {
+            states = new State[cellsNumber];
+            for (int i = 0; i < states.length; i++) {
+                states[i] = new State();
+            }
+        }
+        if (mStateLabels == null || mStateLabels.length != cellsNumber) {
+            mStateLabels = new String[cellsNumber];
+            mStateLabelWidths = new float[cellsNumber];
+        }
+
+        for (int i = 0; i < cellsNumber; i++) {
+            states[i].value = layout.mStateValues[i];
+            states[i].status = getStateStatus(states[i].value);
+        }
+        System.arraycopy(layout.mStateLabels, 0, mStateLabels, 0, cellsNumber);
+        System.arraycopy(layout.mStateLabelWidths, 0, mStateLabelWidths, 0, cellsNumber);
+
+        mContentVersion++;
+        recalculateCellParams(layout.getCellEdges(getBounds().width(), mIsNonUniformCellWidthsEnabled, getCircleWidth(), mState.mSpacing));
+        invalidateAll();
+        return true;
+    }
+
+    /**
+     * Makes this drawable use the style of the other one, as if both were created from the same
+     * constant state. Style changes made through either apply to both until one is mutated.
+     */
+    public void shareStyle(StateProgressDrawable other) {
+        mState = other.mState;
+        mMutated = false;
+        recalculateStateLabels();
+        invalidateAll();
+    }
+
+    /**
+     * @return what building a layout depends on, captured for use off the main thread
+     */
+    StateProgressLayout.Spec getLayoutSpec() {
+        return new StateProgressLayout.Spec(mStateLabelFormatter, unitLabel, mState.mStateDescriptionPaint,
+                mIsNonUniformCellWidthsEnabled, getCircleWidth(), mState.mSpacing);
+    }
+
+    /**
+     * Sets the progress made within the current state. The line between the current and the
+     * next state is filled proportionally. Only that line is reported dirty, and updates smaller
+     * than a pixel are skipped.
+     *
+     * @param fraction progress within the current state, from 0 to 1
+     */
+    public void setStateProgressFraction(float fraction) {
+        mStateProgressFraction = Math.max(0f, Math.min(1f, fraction));
+
+        if (!mIsStateProgressFractionSet) {
+            mIsStateProgressFractionSet = true;
+            mIsBatchDirty = true;
+            invalidateAll();
+            return;
+        }
+
+        int index = getFractionStateIndex();
+        if (index < 0) {
+            return;
+        }
+
+        float lineStart = getFractionLineStart(index);
+        float lineEnd = getFractionLineEnd(index);
+        float fractionEndX = lineStart + (lineEnd - lineStart) * mStateProgressFraction;
+
+        if (Math.abs(fractionEndX - mDrawnFractionEndX) < 1f) {
+            return;
+        }
+
+        if (mState.mForegroundGradientColors != null) {
+            // the gradient is stretched over the completed part, all of it changes
+            invalidateAll();
+            return;
+        }
+
+        Rect bounds = getBounds();
+        float halfThickness = mState.mStateLineThickness / 2;
+        mFractionDirtyBounds.set(bounds.left + (int) Math.floor(Math.min(fractionEndX, mDrawnFractionEndX) - halfThickness),
+                bounds.top + (int) Math.floor(mCellHeight / 2 - halfThickness - 1),
+                bounds.left + (int) Math.ceil(Math.max(fractionEndX, mDrawnFractionEndX) + halfThickness),
+                bounds.top + (int) Math.ceil(mCellHeight / 2 + halfThickness + 1));
+        mHasFractionDirtyBounds = true;
+        invalidateSelf();
+    }
+
+    public float getStateProgressFraction() {
+        return mStateProgressFraction;
+    }
+
+    public boolean isStateProgressFractionSet() {
+        return mIsStateProgressFractionSet;
+    }
+
+    /**
+     * Removes the progress within the current state, its line to the next state is drawn empty
+     * again.
+     */
+    public void clearStateProgressFraction() {
+        if (!mIsStateProgressFractionSet && mStateProgressFraction == 0f) {
+            return;
+        }
+
+        mStateProgressFraction = 0f;
+        mIsStateProgressFractionSet = false;
+        mIsBatchDirty = true;
+        invalidateAll();
+    }
+
+    void restoreStateProgressFraction(float fraction, boolean isFractionSet) {
+        mStateProgressFraction = fraction;
+        mIsStateProgressFractionSet = isFractionSet;
+        mIsBatchDirty = true;
+        invalidateAll();
+    }
+
+    /**
+     * Expands the current state into sub-steps, drawn as small markers along its line to the
+     * next state. Collapsed again when the current state changes.
+     *
+     * @param subStepCount          number of sub-steps, 0 to collapse
+     * @param completedSubStepCount number of completed sub-steps
+     */
+    public void setCurrentStateSubSteps(int subStepCount, int completedSubStepCount) {
+        if (subStepCount < 0 || completedSubStepCount < 0 || completedSubStepCount > subStepCount) {
+            throw new IllegalArgumentException("Completed sub-steps (" + completedSubStepCount + ") must be between 0 and the sub-step count " + subStepCount);
+        }
+
+        if (subStepCount != mSubStepCount) {
+            mSubStepCentersX = null;
+            mIsSubStepLayoutDirty = true;
+        }
+        mSubStepCount = subStepCount;
+        mCompletedSubStepCount = completedSubStepCount;
+        invalidateAll();
+    }
+
+    public int getCurrentStateSubStepCount() {
+        return mSubStepCount;
+    }
+
+    public int getCurrentStateCompletedSubStepCount() {
+        return mCompletedSubStepCount;
+    }
+
+    public void setStateSize(float stateSize) {
+        mState.mStateSize = convertDpToPixel(stateSize);
+        mState.mIsStateSizeSet = true;
+        resetStateSizeValues();
+    }
+
+    private void resetStateSizeValues() {
+
+        resolveStateSize(mState.mIsStateSizeSet, mState.mIsStateTextSizeSet);
+
+        mState.mStateNumberForegroundPaint.setTextSize(mState.mStateNumberTextSize);
+        mState.mStateNumberBackgroundPaint.setTextSize(mState.mStateNumberTextSize);
+        mState.mStateCheckedForegroundPaint.setTextSize(mState.mStateNumberTextSize);
+        mState.mStateCheckedBackgroundPaint.setTextSize(mState.mStateNumberTextSize);
+
+        mState.mStateRadius = mState.mStateSize / 2;
+
+        validateLineThickness(mState.mStateLineThickness);
+
+        mState.applyLineThickness();
+        mContentVersion++;
+        recalculateCellParams();
+        invalidateAll();
+    }
+
+    public void setStateDescriptionSize(float stateDescriptionSize) {
+        mState.mStateDescriptionSize = convertSpToPixel(stateDescriptionSize);
+        mState.mCurrentStateDescriptionPaint.setTextSize(mState.mStateDescriptionSize);
+        mState.mStateDescriptionPaint.setTextSize(mState.mStateDescriptionSize);
+        recalculateStateLabels();
+        invalidateAll();
+    }
+
+    private void updateCheckAllStatesValues(boolean enableAllStatesCompleted) {
+        if (enableAllStatesCompleted) {
+            mCheckStateCompleted = true;
+            mCurrentStateNumber = mMaxStateNumber;
+            mState.mStateDescriptionPaint.setColor(mState.mCurrentStateDescriptionPaint.getColor());
+        }
+    }
+
+    public void setDescriptionTopSpaceIncrementer(float spaceIncrementer) {
+        mState.mDescTopSpaceIncrementer = spaceIncrementer;
+        mContentVersion++;
+        recalculateCellParams();
+        invalidateAll();
+    }
+
+    public void setUnit(String unitLabel) {
+        this.unitLabel = unitLabel;
+        recalculateStateLabels();
+        invalidateAll();
+    }
+
+    public String getUnit() {
+        return unitLabel;
+    }
+
+    /**
+     * Sets the formatter used for the value of each state, e.g. {@link StateLabelFormatters#bytes}.
+     *
+     * @param stateLabelFormatter formatter to use, or null for plain values
+     */
+    public void setStateLabelFormatter(StateLabelFormatter stateLabelFormatter) {
+        mStateLabelFormatter = stateLabelFormatter != null ? stateLabelFormatter : StateLabelFormatters.PLAIN;
+        recalculateStateLabels();
+        invalidateAll();
+    }
+
+    public StateLabelFormatter getStateLabelFormatter() {
+        return mStateLabelFormatter;
+    }
+
+    /**
+     * Draws circles, gap dots and labels as bitmaps from a process wide {@link SpriteAtlas}
+     * instead of rasterizing them every frame. Worth it on software canvases.
+     */
+    public void setSpriteRenderingEnabled(boolean enabled) {
+        if (enabled && mSpriteAtlas == null) {
+            mSpriteAtlas = SpriteAtlas.getInstance(mState.mApplicationContext);
+        } else if (!enabled && mSpriteAtlas != null) {
+            mSpriteAtlas = null;
+            mCircleSprites = null;
+            mLabelSprites = null;
+            mGapDotSprite = null;
+        }
+        invalidateAll();
+    }
+
+    public boolean isSpriteRenderingEnabled() {
+        return mSpriteAtlas != null;
+    }
+
+    /**
+     * Draws all connector lines with a single drawLines call and the circles and gap dots with
+     * one path per paint, instead of a few canvas operations per state. Takes precedence over
+     * sprite rendering for the circles and gap dots.
+     */
+    public void setBatchedRenderingEnabled(boolean enabled) {
+        mIsBatchedRenderingEnabled = enabled;
+        mIsBatchDirty = true;
+        invalidateAll();
+    }
+
+    public boolean isBatchedRenderingEnabled() {
+        return mIsBatchedRenderingEnabled;
+    }
+
+    /**
+     * Draws only the circles and lines, without anti-aliasing, labels, glyphs and gap dots.
+     * Meant for frames where the detail can't be seen anyway, e.g. while the bar is flung.
+     */
+    public void setReducedDetail(boolean reducedDetail) {
+        if (mIsReducedDetail != reducedDetail) {
+            mIsReducedDetail = reducedDetail;
+            mIsBatchDirty = true;
+            invalidateAll();
+        }
+    }
+
+    public boolean isReducedDetail() {
+        return mIsReducedDetail;
+    }
+
+    /**
+     * @return whether some pixels are painted more than once: glyphs drawn over their circle,
+     * labels reaching into the circles, sprites, gradients or sub-step markers drawn over other
+     * primitives. Alpha can only be applied to each primitive separately when it returns false.
+     */
+    public boolean hasOverlappingPrimitives() {
+        if (mSpriteAtlas != null || mState.mForegroundGradientColors != null || mState.mBackgroundGradientColors != null || mSubStepCount > 0) {
+            return true;
+        }
+        if (states == null) {
+            return false;
+        }
+
+        for (State state : states) {
+            if (getGlyph(state.status) != null) {
+                return true;
+            }
+        }
+
+        if (mState.mStateDescriptionSize > 0) {
+            float circlesBottom = mCellHeight / 2 + getOuterRadius(mState.mStateRadius * EMPTY_CIRCLE_SCALE_RATE);
+            return getDescriptionBaseline() - mState.mStateDescriptionSize < circlesBottom;
+        }
+        return false;
+    }
+
+    private void resolveStateSize() {
+        if (mState.mStateSize == 0 && mState.mStateNumberTextSize == 0) {
+            mState.mIsStateSizeSet = false;
+            mState.mIsStateTextSizeSet = false;
+            resolveStateSize(mState.mIsStateSizeSet, mState.mIsStateTextSizeSet);
+
+        } else if (mState.mStateSize != 0 && mState.mStateNumberTextSize != 0) {
+            mState.mIsStateSizeSet = true;
+            mState.mIsStateTextSizeSet = true;
+            resolveStateSize(mState.mIsStateSizeSet, mState.mIsStateTextSizeSet);
+
+        } else if (mState.mStateSize == 0 && mState.mStateNumberTextSize != 0) {
+            mState.mIsStateSizeSet = false;
+            mState.mIsStateTextSizeSet = true;
+            resolveStateSize(mState.mIsStateSizeSet, mState.mIsStateTextSizeSet);
+
+        } else if (mState.mStateSize != 0 && mState.mStateNumberTextSize == 0) {
+            mState.mIsStateSizeSet = true;
+            mState.mIsStateTextSizeSet = false;
+            resolveStateSize(mState.mIsStateSizeSet, mState.mIsStateTextSizeSet);
+        }
+
+    }
+
+    private void resolveStateSize(boolean isStateSizeSet, boolean isStateTextSizeSet) {
+        if (!isStateSizeSet && !isStateTextSizeSet) {
+            mState.mStateSize = convertDpToPixel(DEFAULT_STATE_SIZE);
+            mState.mStateNumberTextSize = convertSpToPixel(DEFAULT_TEXT_SIZE);
+
+        } else if (isStateSizeSet && isStateTextSizeSet) {
+            validateStateSize();
+
+        } else if (!isStateSizeSet && isStateTextSizeSet) {
+            mState.mStateSize = mState.mStateNumberTextSize + mState.mStateNumberTextSize / 2;
+
+        } else if (isStateSizeSet && !isStateTextSizeSet) {
+            mState.mStateNumberTextSize = mState.mStateSize - (mState.mStateSize * 0.375f);
+        }
+
+    }
+
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        super.onBoundsChange(bounds);
+        recalculateCellParams();
+    }
+
+    @Override
+    protected boolean onLevelChange(int level) {
+        float progress = (float) level / MAX_LEVEL * mMaxStateNumber;
+        int currentStateNumber = Math.min((int) progress, mMaxStateNumber);
+
+        if (currentStateNumber == mCurrentStateNumber && mIsStateProgressFractionSet
+                && progress - currentStateNumber == mStateProgressFraction) {
+            return false;
+        }
+
+        setCurrentStateNumber(currentStateNumber);
+        setStateProgressFraction(progress - currentStateNumber);
+        return true;
+    }
+
+    /**
+     * Lays the cells out in one pass: evenly, or from their intrinsic widths when non-uniform
+     * widths are enabled.
+     */
+    private void recalculateCellParams() {
+        int cellsNumber = getCellsNumber();
+        boolean isShared = mSharedCellEdges != null && !mIsNonUniformCellWidthsEnabled && cellsNumber < mSharedCellEdges.length;
+        recalculateCellParams(isShared ? mSharedCellEdges[cellsNumber] : null);
+    }
+
+    /**
+     * Takes the uniform cell edges from the given ones instead of computing them, they have to
+     * be computed for the width of the bounds set next. Used by {@link StateProgressLanesView}.
+     */
+    void setSharedCellEdges(float[][] sharedCellEdges) {
+        mSharedCellEdges = sharedCellEdges;
+    }
+
+    /**
+     * @param cellEdges edges computed ahead for the current width and style, null to compute
+     *                  them
+     */
+    private void recalculateCellParams(float[] cellEdges) {
+        mIsBatchDirty = true;
+        mIsSubStepLayoutDirty = true;
+        int cellsNumber = getCellsNumber();
+        if (mCellEdges.length != cellsNumber + 1) {
+            mCellEdges = new float[cellsNumber + 1];
+        }
+        mCellHeight = getCellHeight();
+
+        if (cellEdges != null && cellEdges.length == mCellEdges.length) {
+            System.arraycopy(cellEdges, 0, mCellEdges, 0, cellEdges.length);
+            return;
+        }
+
+        computeCellEdges(mCellEdges, getBounds().width(), mIsNonUniformCellWidthsEnabled ? mStateLabelWidths : null,
+                getCircleWidth(), mState.mSpacing);
+    }
+
+    /**
+     * Computes the edges of the cells, evenly spread when no label widths are given. Otherwise
+     * the remaining width is shared equally, a missing one is taken proportionally.
+     */
+    static void computeCellEdges(float[] cellEdges, int width, float[] stateLabelWidths, float circleWidth, float spacing) {
+        int cellsNumber = cellEdges.length - 1;
+        cellEdges[0] = 0f;
+
+        if (cellsNumber == 0) {
+            return;
+        }
+
+        if (stateLabelWidths == null || stateLabelWidths.length != cellsNumber) {
+            for (int i = 1; i <= cellsNumber; i++) {
+                cellEdges[i] = (float) width * i / cellsNumber;
+            }
+            return;
+        }
+
+        float intrinsicWidth = 0f;
+        for (int i = 0; i < cellsNumber; i++) {
+            intrinsicWidth += getIntrinsicCellWidth(stateLabelWidths[i], circleWidth, spacing);
+        }
+
+        float extraWidth = (width - intrinsicWidth) / cellsNumber;
+        float scale = width / intrinsicWidth;
+        for (int i = 0; i < cellsNumber; i++) {
+            float cellWidth = getIntrinsicCellWidth(stateLabelWidths[i], circleWidth, spacing);
+            cellEdges[i + 1] = cellEdges[i] + (extraWidth >= 0 ? cellWidth + extraWidth : cellWidth * scale);
+        }
+    }
+
+    /**
+     * @return width needed by the label of the cell or by the largest circle, with a line on
+     * each side
+     */
+    private static float getIntrinsicCellWidth(float stateLabelWidth, float circleWidth, float spacing) {
+        return Math.max(stateLabelWidth, circleWidth) + 2 * spacing;
+    }
+
+    private float getCircleWidth() {
+        return 2 * getOuterRadius(mState.mStateRadius * EMPTY_CIRCLE_SCALE_RATE);
+    }
+
+    private float getIntrinsicCellsWidth() {
+        float circleWidth = getCircleWidth();
+        float width = 0f;
+        float maxCellWidth = 0f;
+        for (int i = 0; i < mStateLabelWidths.length; i++) {
+            float cellWidth = getIntrinsicCellWidth(mStateLabelWidths[i], circleWidth, mState.mSpacing);
+            width += cellWidth;
+            maxCellWidth = Math.max(maxCellWidth, cellWidth);
+        }
+        return mIsNonUniformCellWidthsEnabled ? width : maxCellWidth * mStateLabelWidths.length;
+    }
+
+    private float getCellStart(int index) {
+        return mCellEdges[index];
+    }
+
+    private float getCellEnd(int index) {
+        return mCellEdges[index + 1];
+    }
+
+    private float getCellCenter(int index) {
+        return (mCellEdges[index] + mCellEdges[index + 1]) / 2;
+    }
+
+    private float getCellWidth(int index) {
+        return mCellEdges[index + 1] - mCellEdges[index];
+    }
+
+    /**
+     * Sizes every cell from its label and circle instead of splitting the width evenly, so long
+     * labels get more room.
+     */
+    public void setNonUniformCellWidthsEnabled(boolean enabled) {
+        mIsNonUniformCellWidthsEnabled = enabled;
+        mContentVersion++;
+        recalculateCellParams();
+        invalidateAll();
+    }
+
+    public boolean isNonUniformCellWidthsEnabled() {
+        return mIsNonUniformCellWidthsEnabled;
+    }
+
+    /**
+     * @return width fitting every label and circle, evenly split unless non-uniform cell widths
+     * are enabled
+     */
+    @Override
+    public int getIntrinsicWidth() {
+        return mStateLabelWidths == null ? 0 : (int) Math.ceil(getIntrinsicCellsWidth());
+    }
+
+    /**
+     * @return a number that changes whenever the intrinsic size may have changed
+     */
+    int getContentVersion() {
+        return mContentVersion;
+    }
+
+    private int getCellsNumber() {
+        return getCellsNumber(mMaxStateNumber);
+    }
+
+    static int getCellsNumber(int maxStateNumber) {
+        return Math.min(maxStateNumber, MAX_CELLS_NUMBER);
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return (int) (2 * EMPTY_CIRCLE_SCALE_RATE * mState.mStateRadius) + (int) (1.3 * mState.mStateDescriptionSize) + (int) (mState.mSpacing) - (int) (mState.mDescTopSpaceDecrementer) + (int) (mState.mDescTopSpaceIncrementer);  // mStageHeight = mCellHeight + ( 2 * description Text Size)
+    }
+
+    private int getCellHeight() {
+        return (int) (2 * EMPTY_CIRCLE_SCALE_RATE * mState.mStateRadius) + (int) (mState.mSpacing);
+    }
+
+    @Override
+    public Rect getDirtyBounds() {
+        return mHasFractionDirtyBounds ? mFractionDirtyBounds : getBounds();
+    }
+
+    private void invalidateAll() {
+        mHasFractionDirtyBounds = false;
+        mIsSpritesDirty = true;
+        invalidateSelf();
+    }
+
+    private void resolveSprites() {
+        if (!mIsSpritesDirty && mSpriteGeneration == mSpriteAtlas.getGeneration()) {
+            return;
+        }
+
+        if (mCircleSprites == null || mCircleSprites.length != states.length) {
+            mCircleSprites = new SpriteAtlas.Sprite[states.length];
+            mLabelSprites = new SpriteAtlas.Sprite[states.length];
+            mGlyphSprites = new SpriteAtlas.Sprite[states.length];
+        }
+
+        for (int i = 0; i < states.length; i++) {
+            State state = states[i];
+            String glyph = getGlyph(state.status);
+            mCircleSprites[i] = mSpriteAtlas.getCircle(getCellRadius(i), mState.mStatusPaints[state.status]);
+            mLabelSprites[i] = mSpriteAtlas.getText(mStateLabels[i], mState.mStateDescriptionPaint);
+            mGlyphSprites[i] = glyph != null ? mSpriteAtlas.getText(glyph, getGlyphPaint(state.status)) : null;
+        }
+        mGapDotSprite = mSpriteAtlas.getCircle(2, mState.mBackgroundPaint);
+
+        mIsSpritesDirty = false;
+        mSpriteGeneration = mSpriteAtlas.getGeneration();
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        mHasFractionDirtyBounds = false;
+
+        Rect bounds = getBounds();
+        int saveCount = canvas.save();
+        canvas.translate(bounds.left, bounds.top);
+        // nothing is drawn outside of the bounds. Software canvases come clipped to the dirty
+        // region, cells outside of it are rejected in drawState. Hardware display lists are
+        // recorded whole, so the dirty region must not be clipped here.
+        canvas.clipRect(0, 0, bounds.width(), bounds.height());
+
+        DrawFilter drawFilter = null;
+        if (mIsReducedDetail) {
+            drawFilter = canvas.getDrawFilter();
+            canvas.setDrawFilter(NO_ANTI_ALIAS_FILTER);
+        }
+
+        applyShaders();
+        drawState(canvas);
+        drawSubSteps(canvas);
+
+        if (mIsReducedDetail) {
+            canvas.setDrawFilter(drawFilter);
+        }
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * Sets the gradients of this drawable on the paints of the style, which other drawables of
+     * the same constant state set theirs on before drawing. A local matrix is only updated when
+     * the width of this drawable changes.
+     */
+    private void applyShaders() {
+        if (mShaderState != mState || mShaderGradientVersion != mState.mGradientVersion) {
+            mForegroundShader = StateProgressState.createGradient(mState.mForegroundGradientColors, mState.mForegroundGradientPositions);
+            mBackgroundShader = StateProgressState.createGradient(mState.mBackgroundGradientColors, mState.mBackgroundGradientPositions);
+            mForegroundShaderWidth = Float.NaN;
+            mBackgroundShaderWidth = Float.NaN;
+            mShaderState = mState;
+            mShaderGradientVersion = mState.mGradientVersion;
+        }
+
+        if (mForegroundShader != null && states != null) {
+            float width = Math.max(1f, getCompletedEndX());
+            if (width != mForegroundShaderWidth) {
+                mShaderMatrix.setScale(width, 1f);
+                mForegroundShader.setLocalMatrix(mShaderMatrix);
+                mForegroundShaderWidth = width;
+            }
+        }
+
+        if (mBackgroundShader != null) {
+            float width = Math.max(1f, getBounds().width());
+            if (width != mBackgroundShaderWidth) {
+                mShaderMatrix.setScale(width, 1f);
+                mBackgroundShader.setLocalMatrix(mShaderMatrix);
+                mBackgroundShaderWidth = width;
+            }
+        }
+
+        mState.mForegroundPaint.setShader(mForegroundShader);
+        mState.mCompletedPaint.setShader(mForegroundShader);
+        mState.mBackgroundPaint.setShader(mBackgroundShader);
+    }
+
+    /**
+     * @return end of the completed part: the end of the filled fraction line, or else the outer
+     * edge of the circle of the current state
+     */
+    private float getCompletedEndX() {
+        int fractionIndex = getFractionStateIndex();
+        if (fractionIndex >= 0) {
+            float lineStart = getFractionLineStart(fractionIndex);
+            return lineStart + (getFractionLineEnd(fractionIndex) - lineStart) * mStateProgressFraction;
+        }
+
+        for (int i = states.length - 1; i >= 0; i--) {
+            if (states[i].value <= mCurrentStateNumber) {
+                return getCellCenter(i) + getOuterRadius(getCellRadius(i));
+            }
+        }
+        return 0f;
+    }
+
+    private void drawState(Canvas canvas) {
+        if (mMaxStateNumber > 0 && states != null) {
+            int fractionIndex = getFractionStateIndex();
+            int height = getBounds().height();
+
+            if (mSpriteAtlas != null) {
+                resolveSprites();
+            }
+
+            if (mIsBatchedRenderingEnabled) {
+                drawStateBatched(canvas, fractionIndex);
+                return;
+            }
+
+            for (int i = 0; i < states.length; i++) {
+                // gap dots and description text of a cell may overflow into its neighbours
+                if (canvas.quickReject(getCellStart(i) - getCellWidth(i) / 2, 0, getCellEnd(i) + getCellWidth(i) / 2, height, Canvas.EdgeType.AA)) {
+                    continue;
+                }
+
+                State state = states[i];
+                float radius = getCellRadius(i);
+                Paint paint = mState.mStatusPaints[state.status];
+
+                drawCircles(canvas, paint, i, i + 1, radius);
+                if (!mIsReducedDetail) {
+                    drawGlyph(canvas, i);
+                    drawStateDescriptionText(canvas, mState.mStateDescriptionPaint, i);
+                }
+
+                boolean hasGapWithNext = hasGap(i, i + 1);
+                boolean hasGapWithPrev = hasGap(i - 1, i);
+                if (hasGapWithNext && !mIsReducedDetail) {
+                    drawGap(canvas, mState.mBackgroundPaint, i, mState.mStateRadius * EMPTY_CIRCLE_SCALE_RATE);
+                }
+                boolean isFractionLineNext = fractionIndex >= 0 && i == fractionIndex;
+                boolean isFractionLinePrev = fractionIndex >= 0 && i == fractionIndex + 1;
+                drawLines(canvas, mState.mForegroundPaint, i, hasGapWithPrev || isFractionLinePrev, hasGapWithNext || isFractionLineNext, radius);
+            }
+
+            if (fractionIndex >= 0) {
+                drawFractionLine(canvas, fractionIndex);
+            }
+        }
+    }
+
+    private void drawStateBatched(Canvas canvas, int fractionIndex) {
+        if (mIsBatchDirty) {
+            rebuildBatch(fractionIndex);
+        }
+
+        for (int status = StateStatus.PENDING; status < StateStatus.COUNT; status++) {
+            if (!mStatusCirclesPaths[status].isEmpty()) {
+                canvas.drawPath(mStatusCirclesPaths[status], mState.mStatusPaints[status]);
+            }
+        }
+        if (mLinePointsCount > 0) {
+            canvas.drawLines(mLinePoints, 0, mLinePointsCount, mState.mForegroundPaint);
+        }
+
+        // labels sit at different positions and have no batched call, draw them one by one
+        for (int i = 0; !mIsReducedDetail && i < states.length; i++) {
+            drawGlyph(canvas, i);
+            drawStateDescriptionText(canvas, mState.mStateDescriptionPaint, i);
+        }
+
+        if (fractionIndex >= 0) {
+            drawFractionLine(canvas, fractionIndex);
+        }
+    }
+
+    private void rebuildBatch(int fractionIndex) {
+        for (Path path : mStatusCirclesPaths) {
+            path.rewind();
+        }
+
+        if (mLinePoints == null || mLinePoints.length < states.length * 8) {
+            mLinePoints = new float[states.length * 8];
+        }
+        mLinePointsCount = 0;
+
+        float centerY = mCellHeight / 2;
+        float emptyRadius = mState.mStateRadius * EMPTY_CIRCLE_SCALE_RATE;
+
+        for (int i = 0; i < states.length; i++) {
+            State state = states[i];
+            float radius = getCellRadius(i);
+            float cellStart = getCellStart(i);
+            float cellEnd = getCellEnd(i);
+            float cellCenter = getCellCenter(i);
+
+            mStatusCirclesPaths[state.status].addCircle(cellCenter, centerY, radius, Path.Direction.CW);
+
+            boolean hasGapWithNext = hasGap(i, i + 1);
+            boolean hasGapWithPrev = hasGap(i - 1, i);
+            if (hasGapWithNext && !mIsReducedDetail) {
+                float gapWidth = getGapWidth(i, emptyRadius);
+                for (int j = 0; j < 3; j++) {
+                    mStatusCirclesPaths[StateStatus.PENDING].addCircle(cellEnd + gapWidth / 4 * (j - 1), centerY, 2, Path.Direction.CW);
+                }
+            }
+
+            boolean isFractionLineNext = fractionIndex >= 0 && i == fractionIndex;
+            boolean isFractionLinePrev = fractionIndex >= 0 && i == fractionIndex + 1;
+            float circleStart = cellCenter - getOuterRadius(radius);
+            float circleEnd = cellCenter + getOuterRadius(radius);
+            if (!hasGapWithPrev && !isFractionLinePrev && circleStart > cellStart) {
+                addLinePoints(cellStart, centerY, circleStart, centerY);
+            }
+            if (!hasGapWithNext && !isFractionLineNext && cellEnd > circleEnd) {
+                addLinePoints(circleEnd, centerY, cellEnd, centerY);
+            }
+        }
+
+        mIsBatchDirty = false;
+    }
+
+    private void addLinePoints(float startX, float startY, float stopX, float stopY) {
+        mLinePoints[mLinePointsCount++] = startX;
+        mLinePoints[mLinePointsCount++] = startY;
+        mLinePoints[mLinePointsCount++] = stopX;
+        mLinePoints[mLinePointsCount++] = stopY;
+    }
+
+    private float getCellRadius(int index) {
+        return STATUS_FILLED[states[index].status] ? mState.mStateRadius : mState.mStateRadius * EMPTY_CIRCLE_SCALE_RATE;
+    }
+
+    private String getGlyph(int status) {
+        if (status == StateStatus.COMPLETED && !mCheckStateCompleted) {
+            return null;
+        }
+        return mState.mStatusGlyphs[status];
+    }
+
+    private Paint getGlyphPaint(int status) {
+        return STATUS_FILLED[status] ? mState.mStateCheckedForegroundPaint : mState.mStateCheckedBackgroundPaint;
+    }
+
+    private void drawGlyph(Canvas canvas, int index) {
+        int status = states[index].status;
+        String glyph = getGlyph(status);
+        if (glyph == null) {
+            return;
+        }
+
+        float centerX = getCellCenter(index);
+        Paint paint = getGlyphPaint(status);
+        float baseline = mCellHeight / 2 - (paint.ascent() + paint.descent()) / 2;
+
+        if (mSpriteAtlas != null) {
+            mGlyphSprites[index].draw(canvas, centerX, baseline, mState.mSpritePaint);
+            return;
+        }
+        canvas.drawText(glyph, centerX, baseline, paint);
+    }
+
+    private void drawCircles(Canvas canvas, Paint paint, int startIndex, int endIndex, float radius) {
+        for (int i = startIndex; i < endIndex; i++) {
+            if (mSpriteAtlas != null) {
+                mCircleSprites[i].draw(canvas, getCellCenter(i), mCellHeight / 2, mState.mSpritePaint);
+                continue;
+            }
+            canvas.drawCircle(getCellCenter(i), mCellHeight / 2, radius, paint);
+        }
+    }
+
+    /**
+     * @return index of the cell whose line to the next cell shows the state progress fraction,
+     * or -1 when the fraction is not set or the next cell is not adjacent
+     */
+    private int getFractionStateIndex() {
+        if (!mIsStateProgressFractionSet) {
+            return -1;
+        }
+        return getCurrentLineIndex();
+    }
+
+    /**
+     * @return index of the current cell when it is followed by the adjacent next state, -1 otherwise
+     */
+    private int getCurrentLineIndex() {
+        if (states == null) {
+            return -1;
+        }
+        for (int i = 0; i < states.length - 1; i++) {
+            if (states[i].value == mCurrentStateNumber) {
+                return hasGap(i, i + 1) ? -1 : i;
+            }
+        }
+        return -1;
+    }
+
+    private float getFractionLineStart(int index) {
+        return getCellCenter(index) + getOuterRadius(getCellRadius(index));
+    }
+
+    private float getFractionLineEnd(int index) {
+        return getCellCenter(index + 1) - getOuterRadius(getCellRadius(index + 1));
+    }
+
+    private void drawSubSteps(Canvas canvas) {
+        if (mSubStepCount == 0 || mMaxStateNumber <= 0) {
+            return;
+        }
+
+        int index = getCurrentLineIndex();
+        if (index < 0) {
+            return;
+        }
+
+        if (mSubStepCentersX == null) {
+            mSubStepCentersX = new float[mSubStepCount];
+            mIsSubStepLayoutDirty = true;
+        }
+
+        if (mIsSubStepLayoutDirty) {
+            float lineStart = getFractionLineStart(index);
+            float lineEnd = getFractionLineEnd(index);
+            for (int k = 0; k < mSubStepCount; k++) {
+                mSubStepCentersX[k] = lineStart + (lineEnd - lineStart) * (k + 1) / (mSubStepCount + 1);
+            }
+            mIsSubStepLayoutDirty = false;
+        }
+
+        float radius = mState.mStateRadius / 4;
+        for (int k = 0; k < mSubStepCount; k++) {
+            Paint paint = k < mCompletedSubStepCount ? mState.mForegroundPaint : mState.mBackgroundPaint;
+            canvas.drawCircle(mSubStepCentersX[k], mCellHeight / 2, radius, paint);
+        }
+    }
+
+    private void drawFractionLine(Canvas canvas, int index) {
+        float lineStart = getFractionLineStart(index);
+        float lineEnd = getFractionLineEnd(index);
+        float fractionEndX = lineStart + (lineEnd - lineStart) * mStateProgressFraction;
+
+        if (lineEnd <= lineStart) {
+            return;
+        }
+
+        if (lineEnd > fractionEndX) {
+            canvas.drawLine(fractionEndX, mCellHeight / 2, lineEnd, mCellHeight / 2, mState.mBackgroundPaint);
+        }
+        if (fractionEndX > lineStart) {
+            canvas.drawLine(lineStart, mCellHeight / 2, fractionEndX, mCellHeight / 2, mState.mForegroundPaint);
+        }
+
+        mDrawnFractionEndX = fractionEndX;
+    }
+
+    private boolean hasGap(int i, int j) {
+        return i >= 0 && j >= 0 && states.length > i && states.length > j && Math.abs(states[i].value - states[j].value) > 1;
+    }
+
+    private void recalculateBarState() {
+        mIsBatchDirty = true;
+        mIsSubStepLayoutDirty = true;
+        int cellsNumber = getCellsNumber();
+        if (states == null || states.length != cellsNumber) {
+            states = new State[cellsNumber];
+            for (int i = 0; i < states.length; i++) {
+                states[i] = new State();
+            }
+        }
+
+        for (int i = 0; i < states.length; i++) {
+            State state = states[i];
+            state.value = getStateValue(i, mCurrentStateNumber, mMaxStateNumber);
+            state.status = getStateStatus(state.value);
+        }
+
+        recalculateStateLabels();
+    }
+
+    /**
+     * @return value of the cell at the index, the cells show a window of at most
+     * {@link #MAX_CELLS_NUMBER} states around the current one, ending with the maximum state
+     */
+    static int getStateValue(int index, int currentStateNumber, int maxStateNumber) {
+        int cellsNumber = getCellsNumber(maxStateNumber);
+        int i = cellsNumber - index - 1;
+        if (i == 0) {
+            return maxStateNumber;
+        } else if (maxStateNumber - currentStateNumber < cellsNumber - 1) {
+            return maxStateNumber - i;
+        } else if (currentStateNumber < cellsNumber - 2) {
+            return cellsNumber - i;
+        } else {
+            return currentStateNumber + 2 - i;
+        }
+    }
+
+    /**
+     * @return label of the cell at the index, the unit follows the value of the last cell
+     */
+    static String formatStateLabel(StateLabelFormatter formatter, String unitLabel, int value, boolean isLastCell) {
+        String label = LabelFormatCache.format(formatter, value);
+        if (isLastCell && unitLabel != null) {
+            label = label + " " + unitLabel;
+        }
+        return label;
+    }
+
+    private void recalculateStateLabels() {
+        if (states == null) {
+            return;
+        }
+
+        if (mStateLabels == null || mStateLabels.length != states.length) {
+            mStateLabels = new String[states.length];
+            mStateLabelWidths = new float[states.length];
+        }
+
+        for (int i = 0; i < states.length; i++) {
+            mStateLabels[i] = formatStateLabel(mStateLabelFormatter, unitLabel, states[i].value, i == states.length - 1);
+            mStateLabelWidths[i] = mState.mStateDescriptionPaint.measureText(mStateLabels[i]);
+        }
+
+        mContentVersion++;
+        recalculateCellParams();
+    }
+
+    /**
+     * Lines stop at the outer edge of the stroked circle so that no pixel is painted twice,
+     * segments hidden by the circle are skipped.
+     */
+    private void drawLines(Canvas canvas, Paint paint, int index, boolean leftGap, boolean rightGap, float radius) {
+        float cellStart = getCellStart(index);
+        float cellEnd = getCellEnd(index);
+        float cellCenter = getCellCenter(index);
+        float circleStart = cellCenter - getOuterRadius(radius);
+        float circleEnd = cellCenter + getOuterRadius(radius);
+
+        if (!leftGap && circleStart > cellStart) {
+            canvas.drawLine(cellStart, mCellHeight / 2, circleStart, mCellHeight / 2, paint);
+        }
+        if (!rightGap && cellEnd > circleEnd) {
+            canvas.drawLine(circleEnd, mCellHeight / 2, cellEnd, mCellHeight / 2, paint);
+        }
+    }
+
+    /**
+     * @return radius of a circle including the half of its stroke drawn outside of it
+     */
+    private float getOuterRadius(float radius) {
+        return radius + mState.mStateLineThickness / 2;
+    }
+
+    private void drawGap(Canvas canvas, Paint paint, int gapAfter, float radius) {
+        float gapWidth = getGapWidth(gapAfter, radius);
+        for (int j = 0; j < 3; j++) {
+            if (mSpriteAtlas != null) {
+                mGapDotSprite.draw(canvas, getCellEnd(gapAfter) + gapWidth / 4 * (j - 1), mCellHeight / 2, mState.mSpritePaint);
+                continue;
+            }
+            canvas.drawCircle(getCellEnd(gapAfter) + gapWidth / 4 * (j - 1), mCellHeight / 2, 2, paint);
+        }
+    }
+
+    /**
+     * @return room for the gap dots around the edge after the cell, limited by the narrower of
+     * the two cells
+     */
+    private float getGapWidth(int gapAfter, float radius) {
+        return Math.min(getCellWidth(gapAfter), getCellWidth(gapAfter + 1)) - radius * 2;
+    }
+
+    private float getDescriptionBaseline() {
+        return mCellHeight + mState.mStateDescriptionSize - mState.mSpacing - mState.mDescTopSpaceDecrementer + mState.mDescTopSpaceIncrementer;//mSpacing = mStateNumberForegroundPaint.getTextSize()
+    }
+
+    private void drawStateDescriptionText(Canvas canvas, Paint paint, int i) {
+        int xPos;
+        int yPos;
+        xPos = (int) getCellCenter(i);
+        yPos = (int) getDescriptionBaseline();
+
+        if (mSpriteAtlas != null) {
+            mLabelSprites[i].draw(canvas, xPos, yPos, mState.mSpritePaint);
+            return;
+        }
+        canvas.drawText(mStateLabels[i], xPos, yPos, paint);
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        if (mState.mAlpha != alpha) {
+            mState.mAlpha = alpha;
+            mState.applyColors();
+            invalidateAll();
+        }
+    }
+
+    @Override
+    public int getAlpha() {
+        return mState.mAlpha;
+    }
+
+    @Override
+    public void setColorFilter(ColorFilter colorFilter) {
+        mState.mColorFilter = colorFilter;
+        mState.applyColorFilter();
+        invalidateAll();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+
+    @Override
+    public ConstantState getConstantState() {
+        return mState;
+    }
+
+    @Override
+    public Drawable mutate() {
+        if (!mMutated && super.mutate() == this) {
+            mState = new StateProgressState(mState);
+            mMutated = true;
+        }
+        return this;
+    }
+
+    private float convertDpToPixel(float dp) {
+        return dp * mState.mDensity;
+    }
+
+    private float convertSpToPixel(float sp) {
+        return sp * mState.mScaledDensity;
+    }
+
+    /**
+     * Style of the drawable, shared by all drawables created from it.
+     */
+    static final class StateProgressState extends ConstantState {
+
+        Context mApplicationContext;
+
+        float mDensity;
+        float mScaledDensity;
+
+        float mStateRadius;
+        float mStateSize;
+        float mStateLineThickness;
+        float mStateNumberTextSize;
+        float mStateDescriptionSize;
+
+        float mSpacing;
+
+        float mDescTopSpaceDecrementer;
+        float mDescTopSpaceIncrementer;
+
+        boolean mIsStateSizeSet;
+        boolean mIsStateTextSizeSet;
+
+        int mBackgroundColor;
+        int mForegroundColor;
+        int mStateNumberBackgroundColor;
+        int mStateNumberForegroundColor;
+        int mCurrentStateDescriptionColor;
+        int mStateDescriptionColor;
+        int mCompletedColor;
+        int mErrorColor;
+        int mSkippedColor;
+
+        int mAlpha = 255;
+        ColorFilter mColorFilter;
+
+        Typeface mCheckFont;
+
+        /**
+         * gradients of the style, each drawable creates its shaders from them, and a count of
+         * their changes
+         */
+        int[] mForegroundGradientColors;
+        float[] mForegroundGradientPositions;
+        int[] mBackgroundGradientColors;
+        float[] mBackgroundGradientPositions;
+        int mGradientVersion;
+
+        /**
+         * Paints for drawing
+         */
+        Paint mStateNumberForegroundPaint;
+        Paint mStateCheckedForegroundPaint;
+        Paint mStateNumberBackgroundPaint;
+        Paint mBackgroundPaint;
+        Paint mForegroundPaint;
+        Paint mCurrentStateDescriptionPaint;
+        Paint mStateDescriptionPaint;
+        Paint mSpritePaint;
+        Paint mStateCheckedBackgroundPaint;
+        Paint mCompletedPaint;
+        Paint mErrorPaint;
+        Paint mSkippedPaint;
+
+        /**
+         * circle paint and glyph of each {@link StateStatus}
+         */
+        final Paint[] mStatusPaints = new Paint[StateStatus.COUNT];
+        final String[] mStatusGlyphs = {null, null, null, GLYPH_CHECK, GLYPH_TIMES, GLYPH_FORWARD};
+
+        StateProgressState(Context context) {
+            mApplicationContext = context.getApplicationContext();
+            mDensity = context.getResources().getDisplayMetrics().density;
+            mScaledDensity = context.getResources().getDisplayMetrics().scaledDensity;
+        }
+
+        StateProgressState(StateProgressState orig) {
+            mApplicationContext = orig.mApplicationContext;
+            mDensity = orig.mDensity;
+            mScaledDensity = orig.mScaledDensity;
+
+            mStateRadius = orig.mStateRadius;
+            mStateSize = orig.mStateSize;
+            mStateLineThickness = orig.mStateLineThickness;
+            mStateNumberTextSize = orig.mStateNumberTextSize;
+            mStateDescriptionSize = orig.mStateDescriptionSize;
+
+            mSpacing = orig.mSpacing;
+
+            mDescTopSpaceDecrementer = orig.mDescTopSpaceDecrementer;
+            mDescTopSpaceIncrementer = orig.mDescTopSpaceIncrementer;
+
+            mIsStateSizeSet = orig.mIsStateSizeSet;
+            mIsStateTextSizeSet = orig.mIsStateTextSizeSet;
+
+            mBackgroundColor = orig.mBackgroundColor;
+            mForegroundColor = orig.mForegroundColor;
+            mStateNumberBackgroundColor = orig.mStateNumberBackgroundColor;
+            mStateNumberForegroundColor = orig.mStateNumberForegroundColor;
+            mCurrentStateDescriptionColor = orig.mCurrentStateDescriptionColor;
+            mStateDescriptionColor = orig.mStateDescriptionColor;
+            mCompletedColor = orig.mCompletedColor;
+            mErrorColor = orig.mErrorColor;
+            mSkippedColor = orig.mSkippedColor;
+
+            mAlpha = orig.mAlpha;
+            mColorFilter = orig.mColorFilter;
+
+            mCheckFont = orig.mCheckFont;
+
+            mStateNumberForegroundPaint = new Paint(orig.mStateNumberForegroundPaint);
+            mStateCheckedForegroundPaint = new Paint(orig.mStateCheckedForegroundPaint);
+            mStateNumberBackgroundPaint = new Paint(orig.mStateNumberBackgroundPaint);
+            mBackgroundPaint = new Paint(orig.mBackgroundPaint);
+            mForegroundPaint = new Paint(orig.mForegroundPaint);
+            mCurrentStateDescriptionPaint = new Paint(orig.mCurrentStateDescriptionPaint);
+            mStateDescriptionPaint = new Paint(orig.mStateDescriptionPaint);
+            mSpritePaint = new Paint(orig.mSpritePaint);
+            mStateCheckedBackgroundPaint = new Paint(orig.mStateCheckedBackgroundPaint);
+            mCompletedPaint = new Paint(orig.mCompletedPaint);
+            mErrorPaint = new Paint(orig.mErrorPaint);
+            mSkippedPaint = new Paint(orig.mSkippedPaint);
+
+            System.arraycopy(orig.mStatusGlyphs, 0, mStatusGlyphs, 0, mStatusGlyphs.length);
+            initializeStatusPaints();
+
+            mForegroundGradientColors = orig.mForegroundGradientColors;
+            mForegroundGradientPositions = orig.mForegroundGradientPositions;
+            mBackgroundGradientColors = orig.mBackgroundGradientColors;
+            mBackgroundGradientPositions = orig.mBackgroundGradientPositions;
+        }
+
+        void initializePainters() {
+
+            Typeface typefaceNormal = Typeface.create(Typeface.DEFAULT, Typeface.NORMAL);
+
+            mBackgroundPaint = setPaintAttributes(mStateLineThickness, mBackgroundColor, Paint.Style.STROKE);
+            mForegroundPaint = setPaintAttributes(mStateLineThickness, mForegroundColor, Paint.Style.FILL_AND_STROKE);
+            mStateNumberForegroundPaint = setPaintAttributes(mStateNumberTextSize, mStateNumberForegroundColor, typefaceNormal);
+            mStateCheckedForegroundPaint = setPaintAttributes(mStateNumberTextSize, mStateNumberForegroundColor, mCheckFont);
+            mStateNumberBackgroundPaint = setPaintAttributes(mStateNumberTextSize, mStateNumberBackgroundColor, typefaceNormal);
+            mCurrentStateDescriptionPaint = setPaintAttributes(mStateDescriptionSize, mCurrentStateDescriptionColor, typefaceNormal);
+            mStateDescriptionPaint = setPaintAttributes(mStateDescriptionSize, mStateDescriptionColor, typefaceNormal);
+            mSpritePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+            mStateCheckedBackgroundPaint = setPaintAttributes(mStateNumberTextSize, mStateNumberBackgroundColor, mCheckFont);
+            mCompletedPaint = setPaintAttributes(mStateLineThickness, mCompletedColor, Paint.Style.FILL_AND_STROKE);
+            mErrorPaint = setPaintAttributes(mStateLineThickness, mErrorColor, Paint.Style.FILL_AND_STROKE);
+            mSkippedPaint = setPaintAttributes(mStateLineThickness, mSkippedColor, Paint.Style.FILL_AND_STROKE);
+
+            initializeStatusPaints();
+
+        }
+
+        private void initializeStatusPaints() {
+            mStatusPaints[StateStatus.PENDING] = mBackgroundPaint;
+            mStatusPaints[StateStatus.CURRENT] = mForegroundPaint;
+            mStatusPaints[StateStatus.COMPLETED] = mCompletedPaint;
+            mStatusPaints[StateStatus.ERROR] = mErrorPaint;
+            mStatusPaints[StateStatus.SKIPPED] = mSkippedPaint;
+        }
+
+        private Paint setPaintAttributes(float strokeWidth, int color, Paint.Style style) {
+            Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            paint.setStyle(style);
+            paint.setStrokeWidth(strokeWidth);
+            paint.setColor(color);
+            return paint;
+        }
+
+        private Paint setPaintAttributes(float textSize, int color, Typeface typeface) {
+            Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            paint.setStyle(Paint.Style.FILL_AND_STROKE);
+            paint.setTextAlign(Paint.Align.CENTER);
+            paint.setTextSize(textSize);
+            paint.setColor(color);
+            paint.setTypeface(typeface);
+            return paint;
+        }
+
+        /**
+         * Sets the color of a paint, modulated by the drawable alpha.
+         */
+        void applyColor(Paint paint, int color) {
+            paint.setColor(color);
+            paint.setAlpha(Color.alpha(color) * mAlpha / 255);
+        }
+
+        void applyLineThickness() {
+            mBackgroundPaint.setStrokeWidth(mStateLineThickness);
+            mForegroundPaint.setStrokeWidth(mStateLineThickness);
+            mCompletedPaint.setStrokeWidth(mStateLineThickness);
+            mErrorPaint.setStrokeWidth(mStateLineThickness);
+            mSkippedPaint.setStrokeWidth(mStateLineThickness);
+        }
+
+        void applyColors() {
+            applyColor(mBackgroundPaint, mBackgroundColor);
+            applyColor(mForegroundPaint, mForegroundColor);
+            applyColor(mStateNumberForegroundPaint, mStateNumberForegroundColor);
+            applyColor(mStateCheckedForegroundPaint, mStateNumberForegroundColor);
+            applyColor(mStateNumberBackgroundPaint, mStateNumberBackgroundColor);
+            applyColor(mCurrentStateDescriptionPaint, mCurrentStateDescriptionColor);
+            applyColor(mStateDescriptionPaint, mStateDescriptionColor);
+            applyColor(mStateCheckedBackgroundPaint, mStateNumberBackgroundColor);
+            applyColor(mCompletedPaint, mCompletedColor);
+            applyColor(mErrorPaint, mErrorColor);
+            applyColor(mSkippedPaint, mSkippedColor);
+        }
+
+        static Shader createGradient(int[] colors, float[] positions) {
+            if (colors == null) {
+                return null;
+            }
+            return new LinearGradient(0, 0, 1, 0, colors, positions, Shader.TileMode.CLAMP);
+        }
+
+        void applyColorFilter() {
+            mBackgroundPaint.setColorFilter(mColorFilter);
+            mForegroundPaint.setColorFilter(mColorFilter);
+            mStateNumberForegroundPaint.setColorFilter(mColorFilter);
+            mStateCheckedForegroundPaint.setColorFilter(mColorFilter);
+            mStateNumberBackgroundPaint.setColorFilter(mColorFilter);
+            mCurrentStateDescriptionPaint.setColorFilter(mColorFilter);
+            mStateDescriptionPaint.setColorFilter(mColorFilter);
+            mSpritePaint.setColorFilter(mColorFilter);
+            mStateCheckedBackgroundPaint.setColorFilter(mColorFilter);
+            mCompletedPaint.setColorFilter(mColorFilter);
+            mErrorPaint.setColorFilter(mColorFilter);
+            mSkippedPaint.setColorFilter(mColorFilter);
+        }
+
+        @Override
+        public Drawable newDrawable() {
+            return new StateProgressDrawable(this);
+        }
+
+        @Override
+        public int getChangingConfigurations() {
+            return 0;
+        }
+    }
+
+    private static class State {
+        private int value;
+        private int status;
+    }
+}
@@ -0,0 +1,126 @@
+package com.kofigyan.stateprogressbar;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.support.v4.view.ViewCompat;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Draws a state progress bar below each row of a RecyclerView, without a
+ * {@link StateProgressBar} view per row. The states of each row come from a {@link StateProvider}.
+ * <p>
+ * RecyclerView is not a dependency of this library, add it to the app to use this class.
+ */
+
+public class StateProgressItemDecoration extends RecyclerView.ItemDecoration {
+
+    public interface StateProvider {
+
+        /**
+         * @return current state number of the row at the adapter position
+         */
+        int getCurrentStateNumber(int position);
+
+        /**
+         * @return maximum state number of the row at the adapter position, 0 for rows without a bar
+         */
+        int getMaxStateNumber(int position);
+    }
+
+    private final StateProvider mStateProvider;
+
+    /**
+     * styles every bar, the drawn ones share its constant state
+     */
+    private final StateProgressDrawable mStateProgressDrawable;
+
+    /**
+     * one drawable per child index, reused across frames and scrolls
+     */
+    private final List<StateProgressDrawable> mDrawables = new ArrayList<StateProgressDrawable>();
+
+    private String mUnitLabel;
+    private StateLabelFormatter mStateLabelFormatter;
+
+    public StateProgressItemDecoration(Context context, StateProvider stateProvider) {
+        mStateProvider = stateProvider;
+        mStateProgressDrawable = new StateProgressDrawable(context);
+    }
+
+    /**
+     * @return the drawable whose style is used for every row
+     */
+    public StateProgressDrawable getStateProgressDrawable() {
+        return mStateProgressDrawable;
+    }
+
+    public void setUnit(String unitLabel) {
+        mUnitLabel = unitLabel;
+        for (StateProgressDrawable drawable : mDrawables) {
+            drawable.setUnit(unitLabel);
+        }
+    }
+
+    public void setStateLabelFormatter(StateLabelFormatter stateLabelFormatter) {
+        mStateLabelFormatter = stateLabelFormatter;
+        for (StateProgressDrawable drawable : mDrawables) {
+            drawable.setStateLabelFormatter(stateLabelFormatter);
+        }
+    }
+
+    @Override
+    public void onDraw(Canvas c, RecyclerView parent, RecyclerView.State state) {
+        final int left = parent.getPaddingLeft();
+        final int right = parent.getWidth() - parent.getPaddingRight();
+        final int height = mStateProgressDrawable.getIntrinsicHeight();
+
+        final int childCount = parent.getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            final View child = parent.getChildAt(i);
+            final int position = parent.getChildAdapterPosition(child);
+            if (position == RecyclerView.NO_POSITION) {
+                continue;
+            }
+
+            final int maxStateNumber = mStateProvider.getMaxStateNumber(position);
+            if (maxStateNumber <= 0) {
+                continue;
+            }
+
+            final RecyclerView.LayoutParams params = (RecyclerView.LayoutParams) child
+                    .getLayoutParams();
+            final int top = child.getBottom() + params.bottomMargin + Math.round(ViewCompat.getTranslationY(child));
+
+            StateProgressDrawable drawable = getDrawable(i);
+            drawable.setStateNumbers(mStateProvider.getCurrentStateNumber(position), maxStateNumber);
+            drawable.setBounds(left, top, right, top + height);
+            drawable.draw(c);
+        }
+    }
+
+    @Override
+    public void getItemOffsets(Rect outRect, View view, RecyclerView parent, RecyclerView.State state) {
+        final int position = parent.getChildAdapterPosition(view);
+
+        if (position != RecyclerView.NO_POSITION && mStateProvider.getMaxStateNumber(position) > 0) {
+            outRect.set(0, 0, 0, mStateProgressDrawable.getIntrinsicHeight());
+        } else {
+            outRect.set(0, 0, 0, 0);
+        }
+    }
+
+    private StateProgressDrawable getDrawable(int childIndex) {
+        while (mDrawables.size() <= childIndex) {
+            StateProgressDrawable drawable = (StateProgressDrawable) mStateProgressDrawable.getConstantState().newDrawable();
+            drawable.setUnit(mUnitLabel);
+            drawable.setStateLabelFormatter(mStateLabelFormatter);
+            mDrawables.add(drawable);
+        }
+        return mDrawables.get(childIndex);
+    }
+}
@@ -0,0 +1,294 @@
+package com.kofigyan.stateprogressbar;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.support.v4.view.ViewCompat;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.animation.AccelerateDecelerateInterpolator;
+import android.view.animation.AnimationUtils;
+import android.view.animation.Interpolator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Draws many independent bars, the lanes, stacked vertically in a single view. Lanes share the
+ * style of the view, and one animation clock drives the progress fractions of all of them. The
+ * cell edges are computed once per view width and cells number by the view and copied by the
+ * lanes, unless non-uniform cell widths are enabled, which depend on the labels of each lane.
+ * Only the lanes within the clip are drawn, and a change of one lane only invalidates its band.
+ * <p>
+ * The style is read from the same attributes as {@link StateProgressBar}.
+ */
+
+public class StateProgressLanesView extends View {
+
+    private final StateProgressDrawable mStyle;
+
+    private final List<Lane> mLanes = new ArrayList<Lane>();
+
+    private final Rect mClipBounds = new Rect();
+
+    /**
+     * uniform cell edges for the view width, indexed by cells number, shared by all lanes
+     */
+    private final float[][] mCellEdges = new float[StateProgressDrawable.MAX_CELLS_NUMBER + 1][];
+
+    private final Interpolator mInterpolator = new AccelerateDecelerateInterpolator();
+
+    private int mAnimDuration = 300;
+
+    private boolean mIsClockRunning;
+
+    private final Runnable mClock = new Runnable() {
+        @Override
+        public void run() {
+            long now = AnimationUtils.currentAnimationTimeMillis();
+            boolean isAnimating = false;
+
+            for (int i = 0; i < mLanes.size(); i++) {
+                isAnimating |= mLanes.get(i).step(now);
+            }
+
+            mIsClockRunning = isAnimating;
+            if (isAnimating) {
+                ViewCompat.postOnAnimation(StateProgressLanesView.this, this);
+            }
+        }
+    };
+
+    private class Lane implements Drawable.Callback {
+
+        final StateProgressDrawable drawable;
+        int index;
+
+        float startFraction;
+        float targetFraction;
+        long animStartTime = -1;
+
+        Lane(StateProgressDrawable drawable) {
+            this.drawable = drawable;
+            drawable.setCallback(this);
+        }
+
+        /**
+         * @return whether the fraction is still animating
+         */
+        boolean step(long now) {
+            if (animStartTime < 0) {
+                return false;
+            }
+
+            float t = Math.min(1f, (float) (now - animStartTime) / mAnimDuration);
+            drawable.setStateProgressFraction(startFraction + (targetFraction - startFraction) * mInterpolator.getInterpolation(t));
+            if (t >= 1f) {
+                animStartTime = -1;
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void invalidateDrawable(Drawable who) {
+            Rect dirty = who.getDirtyBounds();
+            int top = index * getLaneHeight();
+            invalidate(dirty.left, top + dirty.top, dirty.right, top + dirty.bottom);
+        }
+
+        @Override
+        public void scheduleDrawable(Drawable who, Runnable what, long when) {
+            StateProgressLanesView.this.scheduleDrawable(who, what, when);
+        }
+
+        @Override
+        public void unscheduleDrawable(Drawable who, Runnable what) {
+            StateProgressLanesView.this.unscheduleDrawable(who, what);
+        }
+    }
+
+    public StateProgressLanesView(Context context) {
+        this(context, null, 0);
+    }
+
+    public StateProgressLanesView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public StateProgressLanesView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+        mStyle = new StateProgressDrawable(context, attrs, defStyle);
+        for (int i = 0; i < mCellEdges.length; i++) {
+            mCellEdges[i] = new float[i + 1];
+        }
+    }
+
+    /**
+     * @return the drawable holding the style of the lanes, call {@link #invalidateStyle()} after
+     * changing it
+     */
+    public StateProgressDrawable getStyle() {
+        return mStyle;
+    }
+
+    /**
+     * Applies changes of the style to every lane.
+     */
+    public void invalidateStyle() {
+        for (int i = 0; i < mLanes.size(); i++) {
+            mLanes.get(i).drawable.shareStyle(mStyle);
+        }
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * Adds or removes lanes at the end, new lanes have the style of the view and no states.
+     */
+    public void setLaneCount(int laneCount) {
+        while (mLanes.size() > laneCount) {
+            mLanes.remove(mLanes.size() - 1).drawable.setCallback(null);
+        }
+        while (mLanes.size() < laneCount) {
+            StateProgressDrawable drawable = (StateProgressDrawable) mStyle.getConstantState().newDrawable();
+            drawable.setUnit(mStyle.getUnit());
+            drawable.setStateLabelFormatter(mStyle.getStateLabelFormatter());
+            drawable.setSharedCellEdges(mCellEdges);
+            drawable.setStateNumbers(0, 0);
+            drawable.setBounds(0, 0, getWidth(), getLaneHeight());
+
+            Lane lane = new Lane(drawable);
+            lane.index = mLanes.size();
+            mLanes.add(lane);
+        }
+        requestLayout();
+        invalidate();
+    }
+
+    public int getLaneCount() {
+        return mLanes.size();
+    }
+
+    /**
+     * @return the drawable of the lane, e.g. to set statuses or sub-steps
+     */
+    public StateProgressDrawable getLaneDrawable(int lane) {
+        return mLanes.get(lane).drawable;
+    }
+
+    public void setLaneStateNumbers(int lane, int currentStateNumber, int maxStateNumber) {
+        Lane l = mLanes.get(lane);
+        l.animStartTime = -1;
+        l.drawable.setStateNumbers(currentStateNumber, maxStateNumber);
+    }
+
+    /**
+     * Sets the progress within the current state of the lane.
+     *
+     * @param animate whether to animate from the current fraction, on the clock shared by all
+     *                lanes
+     */
+    public void setLaneProgressFraction(int lane, float fraction, boolean animate) {
+        Lane l = mLanes.get(lane);
+
+        if (!animate) {
+            l.animStartTime = -1;
+            l.drawable.setStateProgressFraction(fraction);
+            return;
+        }
+
+        l.startFraction = l.drawable.getStateProgressFraction();
+        l.targetFraction = fraction;
+        l.animStartTime = AnimationUtils.currentAnimationTimeMillis();
+
+        if (!mIsClockRunning) {
+            mIsClockRunning = true;
+            ViewCompat.postOnAnimation(this, mClock);
+        }
+    }
+
+    public void setAnimationDuration(int animDuration) {
+        mAnimDuration = animDuration;
+    }
+
+    public void setUnit(String unitLabel) {
+        mStyle.setUnit(unitLabel);
+        for (int i = 0; i < mLanes.size(); i++) {
+            mLanes.get(i).drawable.setUnit(unitLabel);
+        }
+        requestLayout();
+    }
+
+    public void setStateLabelFormatter(StateLabelFormatter stateLabelFormatter) {
+        mStyle.setStateLabelFormatter(stateLabelFormatter);
+        for (int i = 0; i < mLanes.size(); i++) {
+            mLanes.get(i).drawable.setStateLabelFormatter(stateLabelFormatter);
+        }
+        requestLayout();
+    }
+
+    private int getLaneHeight() {
+        return mStyle.getIntrinsicHeight();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int intrinsicWidth = 0;
+        for (int i = 0; i < mLanes.size(); i++) {
+            intrinsicWidth = Math.max(intrinsicWidth, mLanes.get(i).drawable.getIntrinsicWidth());
+        }
+
+        setMeasuredDimension(resolveSize(intrinsicWidth, widthMeasureSpec),
+                resolveSize(getLaneHeight() * mLanes.size(), heightMeasureSpec));
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+
+        if (w != oldw) {
+            for (int i = 0; i < mCellEdges.length; i++) {
+                StateProgressDrawable.computeCellEdges(mCellEdges[i], w, null, 0f, 0f);
+            }
+        }
+
+        int laneHeight = getLaneHeight();
+        for (int i = 0; i < mLanes.size(); i++) {
+            mLanes.get(i).drawable.setBounds(0, 0, w, laneHeight);
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+
+        int laneHeight = getLaneHeight();
+        if (laneHeight <= 0 || mLanes.isEmpty() || !canvas.getClipBounds(mClipBounds)) {
+            return;
+        }
+
+        int first = Math.max(0, mClipBounds.top / laneHeight);
+        int last = Math.min(mLanes.size() - 1, (mClipBounds.bottom - 1) / laneHeight);
+
+        for (int i = first; i <= last; i++) {
+            int saveCount = canvas.save();
+            canvas.translate(0, i * laneHeight);
+            mLanes.get(i).drawable.draw(canvas);
+            canvas.restoreToCount(saveCount);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        removeCallbacks(mClock);
+        mIsClockRunning = false;
+        for (int i = 0; i < mLanes.size(); i++) {
+            mLanes.get(i).animStartTime = -1;
+        }
+
+        super.onDetachedFromWindow();
+    }
+
+}
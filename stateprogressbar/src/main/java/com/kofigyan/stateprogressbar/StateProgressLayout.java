@@ -0,0 +1,114 @@
+package com.kofigyan.stateprogressbar;
+
+import android.graphics.Paint;
+
+/**
+ * Immutable layout of a bar for given state numbers and width: the value, formatted label and
+ * label width of every cell, and the cell edges. Built off the main thread by a
+ * {@link StateProgressPrefetcher} and adopted with {@link StateProgressDrawable#applyLayout}.
+ */
+
+public final class StateProgressLayout {
+
+    /**
+     * Style a layout depends on, copied from a drawable on the main thread.
+     */
+    static final class Spec {
+
+        final StateLabelFormatter mStateLabelFormatter;
+        final String mUnitLabel;
+        final float mStateDescriptionSize;
+        final boolean mIsNonUniformCellWidthsEnabled;
+        final float mCircleWidth;
+        final float mSpacing;
+
+        /**
+         * private copy, paints are not safe to use from several threads
+         */
+        private final Paint mStateDescriptionPaint;
+
+        Spec(StateLabelFormatter stateLabelFormatter, String unitLabel, Paint stateDescriptionPaint,
+             boolean isNonUniformCellWidthsEnabled, float circleWidth, float spacing) {
+            mStateLabelFormatter = stateLabelFormatter;
+            mUnitLabel = unitLabel;
+            mStateDescriptionSize = stateDescriptionPaint.getTextSize();
+            mStateDescriptionPaint = new Paint(stateDescriptionPaint);
+            mIsNonUniformCellWidthsEnabled = isNonUniformCellWidthsEnabled;
+            mCircleWidth = circleWidth;
+            mSpacing = spacing;
+        }
+    }
+
+    final Spec mSpec;
+    final int mWidth;
+    final int mCurrentStateNumber;
+    final int mMaxStateNumber;
+    final int[] mStateValues;
+    final String[] mStateLabels;
+    final float[] mStateLabelWidths;
+    final float[] mCellEdges;
+
+    private StateProgressLayout(Spec spec, int width, int currentStateNumber, int maxStateNumber) {
+        mSpec = spec;
+        mWidth = width;
+        mCurrentStateNumber = currentStateNumber;
+        mMaxStateNumber = maxStateNumber;
+
+        int cellsNumber = StateProgressDrawable.getCellsNumber(maxStateNumber);
+        mStateValues = new int[cellsNumber];
+        mStateLabels = new String[cellsNumber];
+        mStateLabelWidths = new float[cellsNumber];
+        mCellEdges = new float[cellsNumber + 1];
+    }
+
+    /**
+     * Builds the layout, safe to call from any thread as long as the spec is not shared between
+     * threads calling it at the same time.
+     */
+    static StateProgressLayout build(Spec spec, int width, int currentStateNumber, int maxStateNumber) {
+        StateProgressLayout layout = new StateProgressLayout(spec, width, currentStateNumber, maxStateNumber);
+
+        int cellsNumber = layout.mStateValues.length;
+        for (int i = 0; i < cellsNumber; i++) {
+            int value = StateProgressDrawable.getStateValue(i, currentStateNumber, maxStateNumber);
+            String label = StateProgressDrawable.formatStateLabel(spec.mStateLabelFormatter, spec.mUnitLabel, value, i == cellsNumber - 1);
+            layout.mStateValues[i] = value;
+            layout.mStateLabels[i] = label;
+            layout.mStateLabelWidths[i] = spec.mStateDescriptionPaint.measureText(label);
+        }
+        StateProgressDrawable.computeCellEdges(layout.mCellEdges, width, spec.mIsNonUniformCellWidthsEnabled ? layout.mStateLabelWidths : null,
+                spec.mCircleWidth, spec.mSpacing);
+
+        return layout;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getCurrentStateNumber() {
+        return mCurrentStateNumber;
+    }
+
+    public int getMaxStateNumber() {
+        return mMaxStateNumber;
+    }
+
+    /**
+     * @return the cell edges, null when they were computed for another width or cell style
+     */
+    float[] getCellEdges(int width, boolean isNonUniformCellWidthsEnabled, float circleWidth, float spacing) {
+        if (width != mWidth || isNonUniformCellWidthsEnabled != mSpec.mIsNonUniformCellWidthsEnabled
+                || circleWidth != mSpec.mCircleWidth || spacing != mSpec.mSpacing) {
+            return null;
+        }
+        return mCellEdges;
+    }
+
+    boolean isCompatible(StateLabelFormatter stateLabelFormatter, String unitLabel, float stateDescriptionSize) {
+        return mSpec.mStateLabelFormatter == stateLabelFormatter
+                && (mSpec.mUnitLabel == null ? unitLabel == null : mSpec.mUnitLabel.equals(unitLabel))
+                && mSpec.mStateDescriptionSize == stateDescriptionSize;
+    }
+
+}
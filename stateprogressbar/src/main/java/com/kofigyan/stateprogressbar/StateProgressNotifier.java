@@ -0,0 +1,276 @@
+package com.kofigyan.stateprogressbar;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.widget.RemoteViews;
+
+/**
+ * Shows the progress of a background job as a bar in a notification.
+ * <p>
+ * The bar is rendered into a bitmap set on a {@link RemoteViews} of
+ * {@code R.layout.spb_notification}, which the {@link NotificationFactory} wraps into the
+ * notification. Updates can be posted from any thread at any rate: they are coalesced so that
+ * the notifiers of the app together post at most {@link #MIN_POST_INTERVAL_MILLIS} apart, which
+ * keeps the app under the rate above which the platform drops notification updates. The latest
+ * update is always posted, so the final state is never lost. The bitmap is reused, and an update
+ * that doesn't change what is shown posts nothing.
+ * <p>
+ * Rendering and posting happen on a shared background thread, or on the given looper.
+ */
+
+public class StateProgressNotifier {
+
+    /**
+     * Minimum time between two notification posts of the app. The platform drops updates above
+     * 5 per second.
+     */
+    public static final long MIN_POST_INTERVAL_MILLIS = 250;
+
+    /**
+     * the fraction is shown at a percent resolution, finer updates are coalesced
+     */
+    private static final int FRACTION_STEPS = 100;
+
+    private static final int NO_FRACTION = -1;
+
+    private static long sNextPostTime;
+
+    private static HandlerThread sRenderThread;
+
+    /**
+     * Builds the notification around the rendered bar.
+     */
+    public interface NotificationFactory {
+
+        /**
+         * Called on the render thread for every post.
+         *
+         * @param content views showing the bar, to be set as the content view
+         * @param isFinal true for the state posted by {@link #finish}, the notification should
+         *                no longer be ongoing
+         */
+        Notification create(RemoteViews content, int currentStateNumber, int maxStateNumber, boolean isFinal);
+    }
+
+    private final Context mContext;
+    private final NotificationManager mNotificationManager;
+    private final int mNotificationId;
+    private final NotificationFactory mFactory;
+    private final StateProgressDrawable mStyle;
+    private final Handler mHandler;
+
+    /**
+     * latest update not posted yet, guarded by this
+     */
+    private int mPendingCurrentStateNumber;
+    private int mPendingMaxStateNumber;
+    private int mPendingFractionStep = NO_FRACTION;
+    private boolean mIsPendingFinal;
+    private boolean mIsFlushScheduled;
+    private int mWidth;
+    private int mHeight;
+
+    /**
+     * state of the bitmap and of the last post, only used on the render thread
+     */
+    private Bitmap mBitmap;
+    private Canvas mCanvas;
+    private int mDrawnCurrentStateNumber = -1;
+    private int mDrawnMaxStateNumber = -1;
+    private int mDrawnFractionStep = NO_FRACTION;
+    private boolean mIsPostedFinal;
+    private boolean mIsPosted;
+
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private final Runnable mCancelRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mNotificationManager.cancel(mNotificationId);
+            mIsPosted = false;
+        }
+    };
+
+    public StateProgressNotifier(Context context, int notificationId, NotificationFactory factory) {
+        this(context, notificationId, factory, getRenderLooper());
+    }
+
+    /**
+     * @param looper thread rendering and posting the notification, e.g. the main looper in tests
+     */
+    public StateProgressNotifier(Context context, int notificationId, NotificationFactory factory, Looper looper) {
+        mContext = context.getApplicationContext();
+        mNotificationManager = (NotificationManager) mContext.getSystemService(Context.NOTIFICATION_SERVICE);
+        mNotificationId = notificationId;
+        mFactory = factory;
+        mStyle = new StateProgressDrawable(mContext);
+        mHandler = new Handler(looper);
+
+        mWidth = mContext.getResources().getDisplayMetrics().widthPixels;
+        mHeight = mStyle.getIntrinsicHeight();
+    }
+
+    private static synchronized Looper getRenderLooper() {
+        if (sRenderThread == null) {
+            sRenderThread = new HandlerThread("StateProgressNotifier", Process.THREAD_PRIORITY_BACKGROUND);
+            sRenderThread.start();
+        }
+        return sRenderThread.getLooper();
+    }
+
+    /**
+     * @return time at which a post of the app is allowed, reserving it
+     */
+    private static synchronized long reservePostTime(long now) {
+        long postTime = Math.max(now, sNextPostTime);
+        sNextPostTime = postTime + MIN_POST_INTERVAL_MILLIS;
+        return postTime;
+    }
+
+    /**
+     * @return the drawable the bar is rendered with, to be styled before the first update
+     */
+    public StateProgressDrawable getStyle() {
+        return mStyle;
+    }
+
+    /**
+     * Sets the size of the rendered bitmap, by default the width of the display and the
+     * intrinsic height of the style.
+     */
+    public synchronized void setSize(int widthPx, int heightPx) {
+        mWidth = widthPx;
+        mHeight = heightPx;
+    }
+
+    public void update(int currentStateNumber, int maxStateNumber) {
+        post(currentStateNumber, maxStateNumber, NO_FRACTION, false);
+    }
+
+    /**
+     * @param fraction progress within the current state, from 0 to 1
+     */
+    public void update(int currentStateNumber, int maxStateNumber, float fraction) {
+        post(currentStateNumber, maxStateNumber, toFractionStep(fraction), false);
+    }
+
+    /**
+     * Posts the final state. It replaces the pending update and is posted even when it shows
+     * the same state as the last one.
+     */
+    public void finish(int currentStateNumber, int maxStateNumber) {
+        post(currentStateNumber, maxStateNumber, NO_FRACTION, true);
+    }
+
+    /**
+     * Drops the pending update and removes the notification. Updates posted afterwards show it
+     * again.
+     */
+    public void cancel() {
+        // one step with post(): a flush is scheduled exactly while the flag is set, and an update
+        // posted after this call is flushed after the cancel
+        synchronized (this) {
+            mIsFlushScheduled = false;
+            mHandler.removeCallbacks(mFlushRunnable);
+            mHandler.post(mCancelRunnable);
+        }
+    }
+
+    private static int toFractionStep(float fraction) {
+        return Math.round(Math.max(0f, Math.min(1f, fraction)) * FRACTION_STEPS);
+    }
+
+    private void post(int currentStateNumber, int maxStateNumber, int fractionStep, boolean isFinal) {
+        if (currentStateNumber > maxStateNumber) {
+            throw new IllegalStateException("State number (" + currentStateNumber + ") cannot be greater than total number of states " + maxStateNumber);
+        }
+
+        synchronized (this) {
+            mPendingCurrentStateNumber = currentStateNumber;
+            mPendingMaxStateNumber = maxStateNumber;
+            mPendingFractionStep = fractionStep;
+            mIsPendingFinal = isFinal;
+            if (mIsFlushScheduled) {
+                return;
+            }
+            mIsFlushScheduled = true;
+            mHandler.postAtTime(mFlushRunnable, reservePostTime(SystemClock.uptimeMillis()));
+        }
+    }
+
+    private void flush() {
+        int currentStateNumber;
+        int maxStateNumber;
+        int fractionStep;
+        boolean isFinal;
+        int width;
+        int height;
+        synchronized (this) {
+            if (!mIsFlushScheduled) {
+                return;
+            }
+            mIsFlushScheduled = false;
+            currentStateNumber = mPendingCurrentStateNumber;
+            maxStateNumber = mPendingMaxStateNumber;
+            fractionStep = mPendingFractionStep;
+            isFinal = mIsPendingFinal;
+            width = mWidth;
+            height = mHeight;
+        }
+
+        boolean isSizeChanged = mBitmap == null || mBitmap.getWidth() != width || mBitmap.getHeight() != height;
+        boolean isStateChanged = currentStateNumber != mDrawnCurrentStateNumber || maxStateNumber != mDrawnMaxStateNumber
+                || fractionStep != mDrawnFractionStep;
+        if (mIsPosted && !isSizeChanged && !isStateChanged && isFinal == mIsPostedFinal) {
+            return;
+        }
+
+        if (isSizeChanged || isStateChanged) {
+            render(currentStateNumber, maxStateNumber, fractionStep, width, height);
+        }
+
+        RemoteViews content = new RemoteViews(mContext.getPackageName(), R.layout.spb_notification);
+        content.setImageViewBitmap(R.id.spb_notification_bar, mBitmap);
+        // the bitmap is parceled by notify, so it can be drawn over for the next post
+        mNotificationManager.notify(mNotificationId, mFactory.create(content, currentStateNumber, maxStateNumber, isFinal));
+        mIsPosted = true;
+        mIsPostedFinal = isFinal;
+    }
+
+    private void render(int currentStateNumber, int maxStateNumber, int fractionStep, int width, int height) {
+        if (mBitmap == null || mBitmap.getWidth() != width || mBitmap.getHeight() != height) {
+            mBitmap = Bitmap.createBitmap(Math.max(1, width), Math.max(1, height), Bitmap.Config.ARGB_8888);
+            mCanvas = new Canvas(mBitmap);
+            mStyle.setBounds(0, 0, width, height);
+        }
+
+        mStyle.setStateNumbers(currentStateNumber, maxStateNumber);
+        if (fractionStep != NO_FRACTION) {
+            mStyle.setStateProgressFraction(fractionStep / (float) FRACTION_STEPS);
+        } else {
+            mStyle.clearStateProgressFraction();
+        }
+
+        mBitmap.eraseColor(Color.TRANSPARENT);
+        mStyle.draw(mCanvas);
+
+        mDrawnCurrentStateNumber = currentStateNumber;
+        mDrawnMaxStateNumber = maxStateNumber;
+        mDrawnFractionStep = fractionStep;
+    }
+
+}
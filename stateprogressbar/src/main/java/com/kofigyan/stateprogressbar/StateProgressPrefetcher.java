@@ -0,0 +1,173 @@
+package com.kofigyan.stateprogressbar;
+
+import android.support.v4.util.LruCache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Builds {@link StateProgressLayout}s of list items on a background thread ahead of binding, so
+ * binding a row only copies the prefetched state values and labels into its bar.
+ * <p>
+ * Layouts are kept per model, least recently used first evicted. Call {@link #prefetch} when the
+ * data of a row is known, e.g. when it is loaded, and {@link #bind} from
+ * {@code onBindViewHolder}. Only {@link #prefetch} may be called off the main thread.
+ */
+
+public class StateProgressPrefetcher {
+
+    private static final int DEFAULT_MAX_LAYOUTS = 256;
+
+    private static final Executor EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "StateProgressPrefetcher");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+
+    private final StateProgressDrawable mStyle;
+    private final LruCache<Object, StateProgressLayout> mLayouts;
+
+    /**
+     * builds enqueued and not finished yet, per model, guarded by itself
+     */
+    private final Map<Object, PrefetchTask> mPendingTasks = new HashMap<Object, PrefetchTask>();
+
+    /**
+     * read by the prefetch thread, replaced on the main thread when the style changes
+     */
+    private volatile StateProgressLayout.Spec mSpec;
+
+    /**
+     * @param style bar whose unit, formatter and text size the layouts are built with
+     */
+    public StateProgressPrefetcher(StateProgressBar style) {
+        this(style.getStateProgressDrawable(), DEFAULT_MAX_LAYOUTS);
+    }
+
+    public StateProgressPrefetcher(StateProgressDrawable style, int maxLayouts) {
+        mStyle = style;
+        mSpec = style.getLayoutSpec();
+        mLayouts = new LruCache<Object, StateProgressLayout>(maxLayouts);
+    }
+
+    /**
+     * Drops the layouts built so far, call it after changing the unit, formatter or description
+     * size of the style.
+     */
+    public void invalidate() {
+        mSpec = mStyle.getLayoutSpec();
+        mLayouts.evictAll();
+        synchronized (mPendingTasks) {
+            mPendingTasks.clear();
+        }
+    }
+
+    /**
+     * Builds the layout of the model on a background thread, unless an up to date one exists or
+     * is being built.
+     *
+     * @param model   key of the row, e.g. its item
+     * @param widthPx expected width of the bar
+     */
+    public void prefetch(Object model, int currentStateNumber, int maxStateNumber, int widthPx) {
+        if (currentStateNumber > maxStateNumber) {
+            throw new IllegalStateException("State number (" + currentStateNumber + ") cannot be greater than total number of states " + maxStateNumber);
+        }
+
+        if (get(model, currentStateNumber, maxStateNumber, widthPx) != null) {
+            return;
+        }
+
+        PrefetchTask task;
+        synchronized (mPendingTasks) {
+            PrefetchTask pendingTask = mPendingTasks.get(model);
+            if (pendingTask != null && pendingTask.isBuilding(mSpec, currentStateNumber, maxStateNumber, widthPx)) {
+                return;
+            }
+            task = new PrefetchTask(model, mSpec, currentStateNumber, maxStateNumber, widthPx);
+            mPendingTasks.put(model, task);
+        }
+        EXECUTOR.execute(task);
+    }
+
+    /**
+     * @return the prefetched layout of the model, null when it was not built yet or is out of
+     * date
+     */
+    public StateProgressLayout get(Object model, int currentStateNumber, int maxStateNumber, int widthPx) {
+        StateProgressLayout layout = mLayouts.get(model);
+        if (layout == null || layout.mSpec != mSpec || layout.mWidth != widthPx
+                || layout.mCurrentStateNumber != currentStateNumber || layout.mMaxStateNumber != maxStateNumber) {
+            return null;
+        }
+        return layout;
+    }
+
+    /**
+     * Sets the state numbers of the bar, from the prefetched layout when there is one for its
+     * width, or for the prefetched width while the bar is not laid out yet.
+     */
+    public void bind(StateProgressBar bar, Object model, int currentStateNumber, int maxStateNumber) {
+        StateProgressLayout layout = mLayouts.get(model);
+        int width = bar.getWidth() > 0 ? bar.getWidth() : layout != null ? layout.mWidth : 0;
+
+        layout = get(model, currentStateNumber, maxStateNumber, width);
+        if (layout == null || !bar.applyLayout(layout)) {
+            bar.setStateNumbers(currentStateNumber, maxStateNumber);
+        }
+    }
+
+    /**
+     * Build of the layout of a model, replaced in the pending tasks when the model is prefetched
+     * again with other state numbers or width.
+     */
+    private final class PrefetchTask implements Runnable {
+
+        private final Object mModel;
+        private final StateProgressLayout.Spec mTaskSpec;
+        private final int mCurrentStateNumber;
+        private final int mMaxStateNumber;
+        private final int mWidth;
+
+        PrefetchTask(Object model, StateProgressLayout.Spec spec, int currentStateNumber, int maxStateNumber, int width) {
+            mModel = model;
+            mTaskSpec = spec;
+            mCurrentStateNumber = currentStateNumber;
+            mMaxStateNumber = maxStateNumber;
+            mWidth = width;
+        }
+
+        boolean isBuilding(StateProgressLayout.Spec spec, int currentStateNumber, int maxStateNumber, int width) {
+            return mTaskSpec == spec && mCurrentStateNumber == currentStateNumber && mMaxStateNumber == maxStateNumber && mWidth == width;
+        }
+
+        @Override
+        public void run() {
+            synchronized (mPendingTasks) {
+                // replaced by a later prefetch of the model, or invalidated
+                if (mPendingTasks.get(mModel) != this) {
+                    return;
+                }
+            }
+
+            StateProgressLayout layout = StateProgressLayout.build(mTaskSpec, mWidth, mCurrentStateNumber, mMaxStateNumber);
+            // dropped when the style changed while building
+            if (mTaskSpec == mSpec) {
+                mLayouts.put(mModel, layout);
+            }
+            synchronized (mPendingTasks) {
+                if (mPendingTasks.get(mModel) == this) {
+                    mPendingTasks.remove(mModel);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,185 @@
+package com.kofigyan.stateprogressbar;
+
+import android.os.SystemClock;
+
+import com.kofigyan.stateprogressbar.utils.LabelFormatCache;
+import com.kofigyan.stateprogressbar.utils.SpriteAtlas;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Opt-in flight recorder of the bars of the process. Setter calls, layout requests, animations
+ * and draw durations are recorded into a fixed size ring buffer of primitives, nothing is
+ * allocated while recording. {@link #dump(String, PrintWriter)} lists the live bars with their
+ * state, the cache stats and their latest events, call it from {@code Activity.dump} to see it
+ * in {@code adb shell dumpsys activity}.
+ */
+
+public final class StateProgressRecorder {
+
+    static final int EVENT_SET_CURRENT_STATE = 0;
+    static final int EVENT_SET_MAX_STATE = 1;
+    static final int EVENT_SET_STATE_NUMBERS = 2;
+    static final int EVENT_APPLY_LAYOUT = 3;
+    static final int EVENT_SET_FRACTION = 4;
+    static final int EVENT_REQUEST_LAYOUT = 5;
+    static final int EVENT_ANIMATION_START = 6;
+    static final int EVENT_ANIMATION_STOP = 7;
+    static final int EVENT_DRAW = 8;
+
+    private static final String[] EVENT_NAMES = {"setCurrentState", "setMaxState", "setStateNumbers",
+            "applyLayout", "setFraction", "requestLayout", "animationStart", "animationStop", "draw"};
+
+    private static final int CAPACITY = 1024;
+
+    private static final int MAX_DUMPED_EVENTS_PER_BAR = 32;
+
+    private static final Object LOCK = new Object();
+
+    private static final long[] sTimes = new long[CAPACITY];
+    private static final int[] sBarIds = new int[CAPACITY];
+    private static final int[] sEvents = new int[CAPACITY];
+    private static final int[] sArgs0 = new int[CAPACITY];
+    private static final int[] sArgs1 = new int[CAPACITY];
+
+    /**
+     * total number of recorded events, the next one goes to {@code sCount % CAPACITY}
+     */
+    private static long sCount;
+
+    private static volatile boolean sEnabled;
+
+    private static int sNextBarId;
+
+    private static final Map<StateProgressBar, Boolean> LIVE_BARS = new WeakHashMap<StateProgressBar, Boolean>();
+
+    private StateProgressRecorder() {
+    }
+
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    static int nextBarId() {
+        synchronized (LOCK) {
+            return ++sNextBarId;
+        }
+    }
+
+    static void register(StateProgressBar bar) {
+        if (!sEnabled) {
+            return;
+        }
+        synchronized (LIVE_BARS) {
+            LIVE_BARS.put(bar, Boolean.TRUE);
+        }
+    }
+
+    static void unregister(StateProgressBar bar) {
+        synchronized (LIVE_BARS) {
+            LIVE_BARS.remove(bar);
+        }
+    }
+
+    static void record(int barId, int event, int arg0) {
+        record(barId, event, arg0, 0);
+    }
+
+    static void record(int barId, int event, int arg0, int arg1) {
+        if (!sEnabled) {
+            return;
+        }
+
+        synchronized (LOCK) {
+            int i = (int) (sCount % CAPACITY);
+            sTimes[i] = SystemClock.uptimeMillis();
+            sBarIds[i] = barId;
+            sEvents[i] = event;
+            sArgs0[i] = arg0;
+            sArgs1[i] = arg1;
+            sCount++;
+        }
+    }
+
+    /**
+     * Prints the live bars, the cache stats and the latest events of every bar. Must be called
+     * from the main thread.
+     */
+    public static void dump(String prefix, PrintWriter writer) {
+        List<StateProgressBar> bars;
+        synchronized (LIVE_BARS) {
+            bars = new ArrayList<StateProgressBar>(LIVE_BARS.keySet());
+        }
+
+        long now = SystemClock.uptimeMillis();
+
+        writer.print(prefix);
+        writer.println("StateProgressBar recorder: " + (sEnabled ? "enabled" : "disabled") + ", " + bars.size() + " live bars");
+        writer.print(prefix);
+        writer.println("  sprites: " + SpriteAtlas.getStats());
+        writer.print(prefix);
+        writer.println("  labels: " + LabelFormatCache.getStats());
+
+        for (StateProgressBar bar : bars) {
+            writer.print(prefix);
+            writer.print("  ");
+            bar.dumpState(writer);
+
+            dumpEvents(prefix + "    ", writer, bar.getRecorderId(), now);
+        }
+    }
+
+    private static void dumpEvents(String prefix, PrintWriter writer, int barId, long now) {
+        synchronized (LOCK) {
+            long first = Math.max(0, sCount - CAPACITY);
+
+            long start = sCount;
+            int matched = 0;
+            while (start > first && matched < MAX_DUMPED_EVENTS_PER_BAR) {
+                start--;
+                if (sBarIds[(int) (start % CAPACITY)] == barId) {
+                    matched++;
+                }
+            }
+
+            for (long n = start; n < sCount; n++) {
+                int i = (int) (n % CAPACITY);
+                if (sBarIds[i] != barId) {
+                    continue;
+                }
+
+                writer.print(prefix);
+                writer.print("-" + (now - sTimes[i]) + "ms " + EVENT_NAMES[sEvents[i]]);
+                switch (sEvents[i]) {
+                    case EVENT_SET_STATE_NUMBERS:
+                    case EVENT_APPLY_LAYOUT:
+                        writer.println(" " + sArgs0[i] + "/" + sArgs1[i]);
+                        break;
+                    case EVENT_SET_FRACTION:
+                        writer.println(" " + sArgs0[i] / 1000f);
+                        break;
+                    case EVENT_DRAW:
+                        writer.println(" " + sArgs0[i] + "us");
+                        break;
+                    case EVENT_REQUEST_LAYOUT:
+                    case EVENT_ANIMATION_START:
+                    case EVENT_ANIMATION_STOP:
+                        writer.println();
+                        break;
+                    default:
+                        writer.println(" " + sArgs0[i]);
+                        break;
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,242 @@
+package com.kofigyan.stateprogressbar;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.PorterDuff;
+import android.graphics.SurfaceTexture;
+import android.os.Build;
+import android.support.annotation.RequiresApi;
+import android.util.AttributeSet;
+import android.view.TextureView;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Draws a bar into a {@link TextureView} from a dedicated render thread, for progress updated
+ * at high rates. Updates are handed over through a lock free single slot mailbox: the latest one
+ * wins, posting one is a single atomic write from any thread, and the main thread does no work
+ * for it. The render thread eases the drawn fraction towards the latest one, so the bar keeps
+ * moving while the main thread is busy.
+ * <p>
+ * The style is read from the same attributes as {@link StateProgressBar}. Requires a hardware
+ * accelerated window, API 14+.
+ */
+
+@TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+@RequiresApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+public class StateProgressTextureView extends TextureView implements TextureView.SurfaceTextureListener {
+
+    private static final long NO_UPDATE = Long.MIN_VALUE;
+
+    private static final int MAX_STATE_NUMBER = Short.MAX_VALUE;
+
+    private static final long FRAME_NANOS = 16666667L;
+
+    /**
+     * share of the remaining distance to the latest fraction covered per frame
+     */
+    private static final float EASING = 0.25f;
+
+    private static final float FRACTION_EPSILON = 0.001f;
+
+    private final StateProgressDrawable mStyle;
+
+    /**
+     * latest update: current and max state numbers in the high 32 bits, fraction bits in the low ones
+     */
+    private final AtomicLong mMailbox = new AtomicLong(NO_UPDATE);
+
+    private RenderThread mRenderThread;
+
+    public StateProgressTextureView(Context context) {
+        this(context, null, 0);
+    }
+
+    public StateProgressTextureView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public StateProgressTextureView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+        mStyle = new StateProgressDrawable(context, attrs, defStyle);
+        mMailbox.set(pack(mStyle.getCurrentStateNumber(), mStyle.getMaxStateNumber(), 0f));
+        setOpaque(false);
+        setSurfaceTextureListener(this);
+    }
+
+    /**
+     * @return the drawable holding the style, changes apply when the surface is created again
+     */
+    public StateProgressDrawable getStyle() {
+        return mStyle;
+    }
+
+    /**
+     * Posts the progress to the render thread, replacing the one not drawn yet. Can be called
+     * from any thread.
+     *
+     * @param fraction progress within the current state, from 0 to 1
+     */
+    public void setProgress(int currentStateNumber, int maxStateNumber, float fraction) {
+        if (currentStateNumber < 0 || maxStateNumber > MAX_STATE_NUMBER || currentStateNumber > maxStateNumber) {
+            throw new IllegalArgumentException("State number (" + currentStateNumber + ") must be between 0 and the total number of states " + maxStateNumber);
+        }
+
+        mMailbox.set(pack(currentStateNumber, maxStateNumber, fraction));
+
+        RenderThread renderThread = mRenderThread;
+        if (renderThread != null) {
+            LockSupport.unpark(renderThread);
+        }
+    }
+
+    private static long pack(int currentStateNumber, int maxStateNumber, float fraction) {
+        return ((long) currentStateNumber << 48) | ((long) maxStateNumber << 32) | (Float.floatToIntBits(fraction) & 0xffffffffL);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        setMeasuredDimension(resolveSize(mStyle.getIntrinsicWidth(), widthMeasureSpec), mStyle.getIntrinsicHeight());
+    }
+
+    @Override
+    public void onSurfaceTextureAvailable(SurfaceTexture surface, int width, int height) {
+        StateProgressDrawable drawable = (StateProgressDrawable) mStyle.getConstantState().newDrawable();
+        drawable.setUnit(mStyle.getUnit());
+        drawable.setStateLabelFormatter(mStyle.getStateLabelFormatter());
+        // the render thread owns the style from now on
+        drawable.mutate();
+
+        mRenderThread = new RenderThread(drawable, width, height);
+        mRenderThread.start();
+    }
+
+    @Override
+    public void onSurfaceTextureSizeChanged(SurfaceTexture surface, int width, int height) {
+        if (mRenderThread != null) {
+            mRenderThread.setSize(width, height);
+        }
+    }
+
+    @Override
+    public boolean onSurfaceTextureDestroyed(SurfaceTexture surface) {
+        RenderThread renderThread = mRenderThread;
+        mRenderThread = null;
+        if (renderThread != null) {
+            renderThread.quit();
+        }
+        return true;
+    }
+
+    @Override
+    public void onSurfaceTextureUpdated(SurfaceTexture surface) {
+    }
+
+    private class RenderThread extends Thread {
+
+        private final StateProgressDrawable mDrawable;
+
+        private volatile boolean mIsRunning = true;
+        private volatile int mWidth;
+        private volatile int mHeight;
+        private volatile boolean mIsSizeChanged = true;
+
+        private float mTargetFraction;
+        private float mDrawnFraction;
+
+        RenderThread(StateProgressDrawable drawable, int width, int height) {
+            super("StateProgressRender");
+            mDrawable = drawable;
+            mWidth = width;
+            mHeight = height;
+        }
+
+        void setSize(int width, int height) {
+            mWidth = width;
+            mHeight = height;
+            mIsSizeChanged = true;
+            LockSupport.unpark(this);
+        }
+
+        /**
+         * stops the thread and waits for the frame being drawn, the surface is released after
+         */
+        void quit() {
+            mIsRunning = false;
+            LockSupport.unpark(this);
+            boolean interrupted = false;
+            while (isAlive()) {
+                try {
+                    join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (mIsRunning) {
+                boolean isDirty = false;
+
+                if (mIsSizeChanged) {
+                    mIsSizeChanged = false;
+                    mDrawable.setBounds(0, 0, mWidth, mHeight);
+                    isDirty = true;
+                }
+
+                long update = mMailbox.getAndSet(NO_UPDATE);
+                if (update != NO_UPDATE) {
+                    int currentStateNumber = (int) (update >>> 48);
+                    int maxStateNumber = (int) (update >>> 32) & 0xffff;
+                    if (currentStateNumber != mDrawable.getCurrentStateNumber() || maxStateNumber != mDrawable.getMaxStateNumber()) {
+                        mDrawable.setStateNumbers(currentStateNumber, maxStateNumber);
+                        mDrawnFraction = 0f;
+                    }
+                    mTargetFraction = Math.max(0f, Math.min(1f, Float.intBitsToFloat((int) update)));
+                    isDirty = true;
+                }
+
+                boolean isAnimating = Math.abs(mTargetFraction - mDrawnFraction) > FRACTION_EPSILON;
+                if (isAnimating) {
+                    mDrawnFraction += (mTargetFraction - mDrawnFraction) * EASING;
+                    isDirty = true;
+                } else if (mDrawnFraction != mTargetFraction) {
+                    mDrawnFraction = mTargetFraction;
+                    isDirty = true;
+                }
+
+                if (isDirty) {
+                    mDrawable.setStateProgressFraction(mDrawnFraction);
+                    drawFrame();
+                }
+
+                if (isAnimating) {
+                    LockSupport.parkNanos(this, FRAME_NANOS);
+                } else if (mMailbox.get() == NO_UPDATE && !mIsSizeChanged) {
+                    LockSupport.park(this);
+                }
+            }
+        }
+
+        private void drawFrame() {
+            Canvas canvas = lockCanvas();
+            if (canvas == null) {
+                return;
+            }
+            try {
+                canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+                mDrawable.draw(canvas);
+            } finally {
+                unlockCanvasAndPost(canvas);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,199 @@
+package com.kofigyan.stateprogressbar;
+
+import android.appwidget.AppWidgetManager;
+import android.appwidget.AppWidgetProvider;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Build;
+import android.os.Bundle;
+import android.support.v4.util.LruCache;
+import android.util.SparseArray;
+import android.widget.RemoteViews;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Home screen widget showing a bar, with the look of {@link StateProgressBar}.
+ * <p>
+ * Frames are rendered once per state and size bucket and kept in a process wide cache, along
+ * with the frame of the next state, so updating a widget is mostly a lookup. The first update of
+ * a widget in a process sends the whole layout, later ones send only the new bitmap with
+ * {@link AppWidgetManager#partiallyUpdateAppWidget}, and an update that would show the frame the
+ * widget already shows is not sent at all.
+ * <p>
+ * Subclasses provide the state of each widget and are declared as receivers in the manifest
+ * like any {@link AppWidgetProvider}. Call {@link #notifyStateChanged} when the state changes.
+ */
+
+public abstract class StateProgressWidgetProvider extends AppWidgetProvider {
+
+    /**
+     * widths are rounded up to a multiple of this, a frame fits all sizes of its bucket
+     */
+    private static final int SIZE_BUCKET_DP = 32;
+
+    private static final int DEFAULT_WIDTH_DP = 250;
+
+    private static final int MAX_CACHE_BYTES = 2 * 1024 * 1024;
+
+    /**
+     * frames of every provider class of the process, only used on the main thread
+     */
+    private static final Map<Class<?>, Frames> sFrames = new HashMap<Class<?>, Frames>();
+
+    /**
+     * Frame cache and style of a provider class, along with the frame each of its widgets shows.
+     */
+    private static final class Frames {
+
+        final StateProgressDrawable mStyle;
+        final LruCache<Long, Bitmap> mBitmaps;
+        final SparseArray<Long> mShownKeys = new SparseArray<Long>();
+
+        Frames(StateProgressDrawable style) {
+            mStyle = style;
+            mBitmaps = new LruCache<Long, Bitmap>(MAX_CACHE_BYTES) {
+                @Override
+                protected int sizeOf(Long key, Bitmap bitmap) {
+                    return bitmap.getRowBytes() * bitmap.getHeight();
+                }
+            };
+        }
+
+        static long key(int currentStateNumber, int maxStateNumber, int widthBucket) {
+            return ((long) currentStateNumber << 40) | ((long) maxStateNumber << 20) | widthBucket;
+        }
+
+        Bitmap get(int currentStateNumber, int maxStateNumber, int widthBucket, float density) {
+            long key = key(currentStateNumber, maxStateNumber, widthBucket);
+            Bitmap bitmap = mBitmaps.get(key);
+            if (bitmap == null) {
+                bitmap = render(currentStateNumber, maxStateNumber, (int) (widthBucket * SIZE_BUCKET_DP * density));
+                mBitmaps.put(key, bitmap);
+            }
+            return bitmap;
+        }
+
+        private Bitmap render(int currentStateNumber, int maxStateNumber, int width) {
+            int height = mStyle.getIntrinsicHeight();
+            Bitmap bitmap = Bitmap.createBitmap(Math.max(1, width), Math.max(1, height), Bitmap.Config.ARGB_8888);
+            mStyle.setBounds(0, 0, width, height);
+            mStyle.setStateNumbers(currentStateNumber, maxStateNumber);
+            mStyle.draw(new Canvas(bitmap));
+            return bitmap;
+        }
+    }
+
+    /**
+     * Updates all widgets of the provider, e.g. after the state shown by them changed.
+     */
+    public static void notifyStateChanged(Context context, Class<? extends StateProgressWidgetProvider> provider) {
+        int[] appWidgetIds = AppWidgetManager.getInstance(context).getAppWidgetIds(new ComponentName(context, provider));
+        Intent intent = new Intent(context, provider)
+                .setAction(AppWidgetManager.ACTION_APPWIDGET_UPDATE)
+                .putExtra(AppWidgetManager.EXTRA_APPWIDGET_IDS, appWidgetIds);
+        context.sendBroadcast(intent);
+    }
+
+    protected abstract int getCurrentStateNumber(Context context, int appWidgetId);
+
+    protected abstract int getMaxStateNumber(Context context, int appWidgetId);
+
+    /**
+     * Styles the bar, called once per process before the first frame is rendered.
+     */
+    protected void onCreateStyle(Context context, StateProgressDrawable style) {
+    }
+
+    /**
+     * @return layout of the widget, it has to contain an ImageView with the id returned by
+     * {@link #getBarViewId()}
+     */
+    protected int getLayoutId() {
+        return R.layout.spb_widget;
+    }
+
+    protected int getBarViewId() {
+        return R.id.spb_widget_bar;
+    }
+
+    @Override
+    public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        for (int appWidgetId : appWidgetIds) {
+            updateWidget(context, appWidgetManager, appWidgetId);
+        }
+    }
+
+    @Override
+    public void onAppWidgetOptionsChanged(Context context, AppWidgetManager appWidgetManager, int appWidgetId, Bundle newOptions) {
+        updateWidget(context, appWidgetManager, appWidgetId);
+    }
+
+    @Override
+    public void onDeleted(Context context, int[] appWidgetIds) {
+        Frames frames = getFrames(context);
+        for (int appWidgetId : appWidgetIds) {
+            frames.mShownKeys.remove(appWidgetId);
+        }
+    }
+
+    private Frames getFrames(Context context) {
+        Frames frames = sFrames.get(getClass());
+        if (frames == null) {
+            StateProgressDrawable style = new StateProgressDrawable(context.getApplicationContext());
+            onCreateStyle(context, style);
+            frames = new Frames(style);
+            sFrames.put(getClass(), frames);
+        }
+        return frames;
+    }
+
+    private void updateWidget(Context context, AppWidgetManager appWidgetManager, int appWidgetId) {
+        Frames frames = getFrames(context);
+        int currentStateNumber = getCurrentStateNumber(context, appWidgetId);
+        int maxStateNumber = getMaxStateNumber(context, appWidgetId);
+        int widthBucket = getWidthBucket(appWidgetManager, appWidgetId);
+        float density = context.getResources().getDisplayMetrics().density;
+
+        long key = Frames.key(currentStateNumber, maxStateNumber, widthBucket);
+        Long shownKey = frames.mShownKeys.get(appWidgetId);
+        if (shownKey != null && shownKey == key) {
+            return;
+        }
+
+        RemoteViews views = new RemoteViews(context.getPackageName(), getLayoutId());
+        views.setImageViewBitmap(getBarViewId(), frames.get(currentStateNumber, maxStateNumber, widthBucket, density));
+        if (shownKey != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+            appWidgetManager.partiallyUpdateAppWidget(appWidgetId, views);
+        } else {
+            appWidgetManager.updateAppWidget(appWidgetId, views);
+        }
+        frames.mShownKeys.put(appWidgetId, key);
+
+        if (currentStateNumber < maxStateNumber) {
+            frames.get(currentStateNumber + 1, maxStateNumber, widthBucket, density);
+        }
+    }
+
+    /**
+     * @return the widest size of the widget in buckets, the frame is scaled down to narrower ones
+     */
+    private static int getWidthBucket(AppWidgetManager appWidgetManager, int appWidgetId) {
+        int widthDp = 0;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            Bundle options = appWidgetManager.getAppWidgetOptions(appWidgetId);
+            if (options != null) {
+                widthDp = options.getInt(AppWidgetManager.OPTION_APPWIDGET_MAX_WIDTH);
+            }
+        }
+        if (widthDp <= 0) {
+            widthDp = DEFAULT_WIDTH_DP;
+        }
+        return (widthDp + SIZE_BUCKET_DP - 1) / SIZE_BUCKET_DP;
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.kofigyan.stateprogressbar;
+
+/**
+ * Status of a single state. Each status has its own circle color and glyph, see
+ * {@link StateProgressDrawable#setStatusColor(int, int)} and
+ * {@link StateProgressDrawable#setStatusGlyph(int, String)}.
+ */
+public final class StateStatus {
+
+    /**
+     * derived from the current state number: completed before it, pending after it
+     */
+    public static final int AUTO = 0;
+    public static final int PENDING = 1;
+    public static final int CURRENT = 2;
+    public static final int COMPLETED = 3;
+    public static final int ERROR = 4;
+    public static final int SKIPPED = 5;
+
+    static final int COUNT = 6;
+
+    /**
+     * statuses are packed into ints, STATUS_BITS per state
+     */
+    static final int STATUS_BITS = 4;
+    static final int STATUSES_PER_INT = Integer.SIZE / STATUS_BITS;
+    private static final int STATUS_MASK = (1 << STATUS_BITS) - 1;
+
+    private StateStatus() {
+    }
+
+    static void validate(int status) {
+        if (status < AUTO || status >= COUNT) {
+            throw new IllegalArgumentException("Unknown state status " + status);
+        }
+    }
+
+    /**
+     * Stores the status of the state at the index, growing the array when needed.
+     *
+     * @param packed         packed statuses, null when none is set
+     * @param minStateCount  states the array is sized for when it has to grow
+     * @return the array holding the status, the given one unless it had to grow, or null when
+     * {@link #AUTO} is stored in a missing array, which already means AUTO
+     */
+    static int[] pack(int[] packed, int index, int status, int minStateCount) {
+        int slot = index / STATUSES_PER_INT;
+        int shift = (index % STATUSES_PER_INT) * STATUS_BITS;
+
+        if (packed == null || packed.length <= slot) {
+            if (status == AUTO) {
+                return null;
+            }
+            int[] grown = new int[Math.max(slot + 1, (minStateCount + STATUSES_PER_INT - 1) / STATUSES_PER_INT)];
+            if (packed != null) {
+                System.arraycopy(packed, 0, grown, 0, packed.length);
+            }
+            packed = grown;
+        }
+
+        packed[slot] = (packed[slot] & ~(STATUS_MASK << shift)) | (status << shift);
+        return packed;
+    }
+
+    /**
+     * @return the status stored for the state at the index, {@link #AUTO} when none is
+     */
+    static int unpack(int[] packed, int index) {
+        int slot = index / STATUSES_PER_INT;
+        if (index < 0 || packed == null || packed.length <= slot) {
+            return AUTO;
+        }
+        return (packed[slot] >>> ((index % STATUSES_PER_INT) * STATUS_BITS)) & STATUS_MASK;
+    }
+
+}
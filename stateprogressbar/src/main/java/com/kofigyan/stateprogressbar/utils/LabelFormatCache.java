@@ -0,0 +1,72 @@
+package com.kofigyan.stateprogressbar.utils;
+
+import com.kofigyan.stateprogressbar.StateLabelFormatter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Bounded cache of formatted labels, one per {@link StateLabelFormatter}.
+ */
+
+public class LabelFormatCache {
+
+    static final int MAX_LABELS_PER_FORMATTER = 256;
+
+    private static final Map<StateLabelFormatter, Map<Integer, String>> CACHES = new WeakHashMap<StateLabelFormatter, Map<Integer, String>>();
+
+    /**
+     * Formats the value, or returns the label cached for it. The formatter runs outside of the
+     * lock, so a slow formatter only delays its own caller; two threads formatting the same
+     * value at once both run it and the first label stored wins.
+     */
+    public static String format(StateLabelFormatter formatter, int value) {
+        String label = get(formatter, value);
+        if (label != null) {
+            return label;
+        }
+
+        label = formatter.format(value);
+        return putIfAbsent(formatter, value, label);
+    }
+
+    private static synchronized String get(StateLabelFormatter formatter, int value) {
+        Map<Integer, String> labels = CACHES.get(formatter);
+        return labels != null ? labels.get(value) : null;
+    }
+
+    private static synchronized String putIfAbsent(StateLabelFormatter formatter, int value, String label) {
+        Map<Integer, String> labels = CACHES.get(formatter);
+
+        if (labels == null) {
+            labels = new LinkedHashMap<Integer, String>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                    return size() > MAX_LABELS_PER_FORMATTER;
+                }
+            };
+            CACHES.put(formatter, labels);
+        }
+
+        String cached = labels.get(value);
+        if (cached != null) {
+            return cached;
+        }
+
+        labels.put(value, label);
+        return label;
+    }
+
+    /**
+     * @return number of formatters and of cached labels
+     */
+    public static synchronized String getStats() {
+        int labels = 0;
+        for (Map<Integer, String> formatterLabels : CACHES.values()) {
+            labels += formatterLabels.size();
+        }
+        return CACHES.size() + " formatters, " + labels + " labels";
+    }
+
+}
@@ -0,0 +1,229 @@
+package com.kofigyan.stateprogressbar.utils;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.support.v4.util.LruCache;
+
+/**
+ * Process wide cache of pre-rasterized circles and text, so drawing them becomes a bitmap blit.
+ * Sprites are evicted least recently used first, and dropped under memory pressure.
+ */
+
+public class SpriteAtlas {
+
+    private static final int KIND_CIRCLE = 0;
+    private static final int KIND_TEXT = 1;
+
+    private static SpriteAtlas sInstance;
+
+    private final LruCache<Key, Sprite> mSprites;
+
+    /**
+     * incremented on every eviction caused by memory pressure, holders of sprites compare it to
+     * know when to drop their references
+     */
+    private int mGeneration;
+
+    public static synchronized SpriteAtlas getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new SpriteAtlas((int) Math.min(Runtime.getRuntime().maxMemory() / 64, Integer.MAX_VALUE));
+
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+                context.getApplicationContext().registerComponentCallbacks(new ComponentCallbacks2() {
+                    @Override
+                    public void onTrimMemory(int level) {
+                        sInstance.trimMemory(level);
+                    }
+
+                    @Override
+                    public void onConfigurationChanged(Configuration newConfig) {
+                    }
+
+                    @Override
+                    public void onLowMemory() {
+                        sInstance.trimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+                    }
+                });
+            }
+        }
+        return sInstance;
+    }
+
+    private SpriteAtlas(int maxBytes) {
+        mSprites = new LruCache<Key, Sprite>(maxBytes) {
+            @Override
+            protected int sizeOf(Key key, Sprite sprite) {
+                return sprite.bitmap.getRowBytes() * sprite.bitmap.getHeight();
+            }
+        };
+    }
+
+    /**
+     * @return size and hit rate of the atlas, or a note that it is not created yet
+     */
+    public static synchronized String getStats() {
+        if (sInstance == null) {
+            return "not created";
+        }
+        LruCache<Key, Sprite> sprites = sInstance.mSprites;
+        return sprites.size() + "/" + sprites.maxSize() + " bytes, " + sprites.hitCount() + " hits, "
+                + sprites.missCount() + " misses, " + sprites.evictionCount() + " evictions";
+    }
+
+    public int getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * Drops sprites according to the level passed to {@link ComponentCallbacks2#onTrimMemory(int)}.
+     * Registered automatically on API 14+, call it from the application otherwise.
+     */
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            mSprites.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            mSprites.trimToSize(mSprites.maxSize() / 2);
+        } else {
+            return;
+        }
+        mGeneration++;
+    }
+
+    /**
+     * @return circle of the radius drawn with the style, color and stroke of the paint
+     */
+    public Sprite getCircle(float radius, Paint paint) {
+        Key key = new Key(KIND_CIRCLE, radius, paint, null);
+        Sprite sprite = mSprites.get(key);
+
+        if (sprite == null) {
+            float halfSize = radius + (paint.getStyle() == Paint.Style.FILL ? 0 : paint.getStrokeWidth() / 2) + 1;
+            int size = (int) Math.ceil(2 * halfSize);
+
+            Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+            new Canvas(bitmap).drawCircle(size / 2f, size / 2f, radius, rasterPaint(paint));
+
+            sprite = new Sprite(bitmap, size / 2f, size / 2f);
+            mSprites.put(key, sprite);
+        }
+
+        return sprite;
+    }
+
+    /**
+     * @return text drawn with the paint, anchored at its baseline and text alignment
+     */
+    public Sprite getText(String text, Paint paint) {
+        Key key = new Key(KIND_TEXT, paint.getTextSize(), paint, text);
+        Sprite sprite = mSprites.get(key);
+
+        if (sprite == null) {
+            Paint.FontMetrics fontMetrics = paint.getFontMetrics();
+            float textWidth = paint.measureText(text);
+            int width = (int) Math.ceil(textWidth) + 2;
+            int height = (int) Math.ceil(fontMetrics.descent - fontMetrics.ascent) + 2;
+
+            float anchorX;
+            switch (paint.getTextAlign()) {
+                case CENTER:
+                    anchorX = width / 2f;
+                    break;
+                case RIGHT:
+                    anchorX = width - 1;
+                    break;
+                default:
+                    anchorX = 1;
+                    break;
+            }
+            float anchorY = 1 - fontMetrics.ascent;
+
+            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            new Canvas(bitmap).drawText(text, anchorX, anchorY, rasterPaint(paint));
+
+            sprite = new Sprite(bitmap, anchorX, anchorY);
+            mSprites.put(key, sprite);
+        }
+
+        return sprite;
+    }
+
+    private static Paint rasterPaint(Paint paint) {
+        Paint rasterPaint = new Paint(paint);
+        rasterPaint.setColorFilter(null);
+        // sprites are keyed by color, gradients are drawn in the flat color of the paint
+        rasterPaint.setShader(null);
+        return rasterPaint;
+    }
+
+    public static final class Sprite {
+        public final Bitmap bitmap;
+        public final float anchorX;
+        public final float anchorY;
+
+        Sprite(Bitmap bitmap, float anchorX, float anchorY) {
+            this.bitmap = bitmap;
+            this.anchorX = anchorX;
+            this.anchorY = anchorY;
+        }
+
+        public void draw(Canvas canvas, float x, float y, Paint paint) {
+            canvas.drawBitmap(bitmap, x - anchorX, y - anchorY, paint);
+        }
+    }
+
+    private static final class Key {
+        private final int kind;
+        private final float size;
+        private final int color;
+        private final float strokeWidth;
+        private final Paint.Style style;
+        private final Typeface typeface;
+        private final String text;
+
+        Key(int kind, float size, Paint paint, String text) {
+            this.kind = kind;
+            this.size = size;
+            this.color = paint.getColor();
+            this.strokeWidth = paint.getStrokeWidth();
+            this.style = paint.getStyle();
+            this.typeface = paint.getTypeface();
+            this.text = text;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            Key key = (Key) o;
+            return kind == key.kind
+                    && Float.compare(size, key.size) == 0
+                    && color == key.color
+                    && Float.compare(strokeWidth, key.strokeWidth) == 0
+                    && style == key.style
+                    && (typeface == null ? key.typeface == null : typeface.equals(key.typeface))
+                    && (text == null ? key.text == null : text.equals(key.text));
+        }
+
+        @Override
+        public int hashCode() {
+            int result = kind;
+            result = 31 * result + Float.floatToIntBits(size);
+            result = 31 * result + color;
+            result = 31 * result + Float.floatToIntBits(strokeWidth);
+            result = 31 * result + (style != null ? style.hashCode() : 0);
+            result = 31 * result + (typeface != null ? typeface.hashCode() : 0);
+            result = 31 * result + (text != null ? text.hashCode() : 0);
+            return result;
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.kofigyan.stateprogressbar.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter that many threads can add to without contending on one atomic, in the manner of
+ * LongAdder, which needs API 24. Every thread adds to its own stripe, each on its own cache
+ * line, and reading sums the stripes.
+ * <p>
+ * Threads are mapped to stripes by id. Pool threads get consecutive ids, so as many of them as
+ * there are stripes never share one.
+ */
+
+public class StripedCounter {
+
+    /**
+     * longs between two stripes, a 64 byte cache line
+     */
+    private static final int PADDING = 8;
+
+    private static final int MAX_STRIPES = 64;
+
+    private final AtomicLongArray mCells;
+    private final int mMask;
+
+    public StripedCounter() {
+        int stripes = 1;
+        int target = Runtime.getRuntime().availableProcessors() * 2;
+        while (stripes < target && stripes < MAX_STRIPES) {
+            stripes <<= 1;
+        }
+        // one more line of padding so the last stripe doesn't share a line with other objects
+        mCells = new AtomicLongArray((stripes + 1) * PADDING);
+        mMask = stripes - 1;
+    }
+
+    public void add(long x) {
+        mCells.addAndGet(((int) Thread.currentThread().getId() & mMask) * PADDING, x);
+    }
+
+    /**
+     * @return the sum of the stripes, not a snapshot while threads add to it
+     */
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i <= mMask; i++) {
+            sum += mCells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    /**
+     * Resets the stripes to zero, adds made meanwhile may be lost.
+     */
+    public void reset() {
+        for (int i = 0; i <= mMask; i++) {
+            mCells.set(i * PADDING, 0);
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.kofigyan.stateprogressbar;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ByteProgressTest {
+
+    @Test
+    public void mapsBytesToTheStepTheyAreIn() {
+        ByteProgress progress = new ByteProgress(100, 50, 200);
+
+        assertEquals(1, progress.getStateNumber(0));
+        assertEquals(1, progress.getStateNumber(99));
+        assertEquals(2, progress.getStateNumber(100));
+        assertEquals(2, progress.getStateNumber(149));
+        assertEquals(3, progress.getStateNumber(150));
+        assertEquals(3, progress.getStateNumber(349));
+    }
+
+    @Test
+    public void movesPastTheLastStepOnceComplete() {
+        ByteProgress progress = new ByteProgress(100, 50, 200);
+
+        assertFalse(progress.isComplete(349));
+        assertTrue(progress.isComplete(350));
+        assertEquals(4, progress.getStateNumber(350));
+        assertEquals(4, progress.getStateNumber(1000));
+        assertEquals(1f, progress.getFraction(1000, 4), 0f);
+    }
+
+    @Test
+    public void showsTheFractionOfTheLastStep() {
+        ByteProgress progress = new ByteProgress(100);
+
+        // the bar shows two states, the only step fills the line between them
+        assertEquals(1, progress.getStateNumber(0));
+        assertEquals(0f, progress.getFraction(0, 1), 0f);
+        assertEquals(1, progress.getStateNumber(50));
+        assertEquals(0.5f, progress.getFraction(50, 1), 0f);
+        assertEquals(2, progress.getStateNumber(100));
+    }
+
+    @Test
+    public void skipsEmptySteps() {
+        ByteProgress progress = new ByteProgress(10, 0, 10);
+
+        assertEquals(3, progress.getStateNumber(10));
+        assertEquals(1f, progress.getFraction(10, 2), 0f);
+    }
+
+    @Test
+    public void computesTheFractionWithinTheStep() {
+        ByteProgress progress = new ByteProgress(100, 50, 200);
+
+        assertEquals(0f, progress.getFraction(0, 1), 0f);
+        assertEquals(0.5f, progress.getFraction(50, 1), 0f);
+        assertEquals(0f, progress.getFraction(100, 2), 0f);
+        assertEquals(0.5f, progress.getFraction(125, 2), 0f);
+        assertEquals(0.25f, progress.getFraction(200, 3), 0f);
+        // bytes of another step are clamped
+        assertEquals(0f, progress.getFraction(10, 3), 0f);
+        assertEquals(1f, progress.getFraction(300, 1), 0f);
+    }
+
+    @Test
+    public void splitsEqualStepsWithoutLosingBytes() {
+        ByteProgress progress = ByteProgress.ofEqualSteps(10, 3);
+
+        assertEquals(3, progress.getStepCount());
+        assertEquals(10, progress.getTotalBytes());
+        assertEquals(1, progress.getStateNumber(2));
+        assertEquals(2, progress.getStateNumber(3));
+        assertEquals(3, progress.getStateNumber(6));
+    }
+
+    @Test
+    public void countsAddedBytes() {
+        ByteProgress progress = new ByteProgress(100);
+        progress.add(30);
+        progress.add(12);
+
+        assertEquals(42, progress.getBytes());
+        assertEquals(42, progress.getPosition());
+
+        progress.reset();
+        assertEquals(0, progress.getBytes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeStepSizes() {
+        new ByteProgress(10, -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requiresAStep() {
+        new ByteProgress();
+    }
+
+}
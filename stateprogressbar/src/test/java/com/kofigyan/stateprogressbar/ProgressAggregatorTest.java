@@ -0,0 +1,72 @@
+package com.kofigyan.stateprogressbar;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ProgressAggregatorTest {
+
+    @Test
+    public void positionChangesWithEveryChangeEvenWhenTheUnitsAddUp() {
+        ProgressAggregator aggregator = new ProgressAggregator(1f, 1f);
+        aggregator.setPhaseTotal(0, 10);
+        aggregator.setPhaseTotal(1, 10);
+        long position = aggregator.getPosition();
+
+        // the sum of completed and total units stays the same
+        aggregator.add(0, 5);
+        aggregator.setPhaseTotal(1, 5);
+        long next = aggregator.getPosition();
+
+        assertNotEquals(position, next);
+        assertEquals(next, aggregator.getPosition());
+    }
+
+    @Test
+    public void theStateIsTheNumberOfCompletedPhasesPlusOne() {
+        ProgressAggregator aggregator = new ProgressAggregator(1f, 1f, 1f);
+        aggregator.setPhaseTotal(0, 4);
+        aggregator.setPhaseTotal(1, 8);
+        aggregator.add(0, 4);
+        aggregator.add(1, 2);
+
+        long position = aggregator.getPosition();
+
+        assertEquals(2, aggregator.getStateNumber(position));
+        assertEquals(0.25f, aggregator.getFraction(position, 2), 0f);
+        // the total of the last phase is unknown
+        assertFalse(aggregator.isComplete(position));
+
+        aggregator.add(1, 6);
+        aggregator.setPhaseTotal(2, 4);
+        aggregator.add(2, 2);
+        position = aggregator.getPosition();
+
+        // the last phase fills the line to the state past it
+        assertEquals(3, aggregator.getStateNumber(position));
+        assertEquals(0.5f, aggregator.getFraction(position, 3), 0f);
+        assertFalse(aggregator.isComplete(position));
+
+        aggregator.add(2, 2);
+        position = aggregator.getPosition();
+
+        assertEquals(4, aggregator.getStateNumber(position));
+        assertEquals(1f, aggregator.getFraction(position, 4), 0f);
+        assertTrue(aggregator.isComplete(position));
+    }
+
+    @Test
+    public void weightsTheOverallFraction() {
+        ProgressAggregator aggregator = new ProgressAggregator(3f, 1f);
+        aggregator.setPhaseTotal(0, 10);
+        aggregator.setPhaseTotal(1, 10);
+        aggregator.add(0, 10);
+        aggregator.getPosition();
+
+        assertEquals(0.75f, aggregator.getOverallFraction(), 0.0001f);
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.kofigyan.stateprogressbar;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ProgressJournalTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void restoresTheLastStateOfEverySession() throws Exception {
+        File file = mFolder.newFile();
+        ProgressJournal journal = ProgressJournal.open(file);
+        journal.record("upload", 1, 4, Float.NaN);
+        journal.record("upload", 2, 4, 0.5f);
+        journal.record("checkout", 3, 5, Float.NaN);
+        journal.close();
+
+        ProgressJournal reopened = ProgressJournal.open(file);
+
+        assertEquals(2, reopened.getEntries().size());
+        ProgressJournal.Entry upload = reopened.get("upload");
+        assertEquals(2, upload.getCurrentStateNumber());
+        assertEquals(4, upload.getMaxStateNumber());
+        assertEquals(0.5f, upload.getStateProgressFraction(), 0f);
+        assertFalse(reopened.get("checkout").isStateProgressFractionSet());
+        reopened.close();
+    }
+
+    @Test
+    public void coalescesChangesOfTheFractionAlone() throws Exception {
+        File file = mFolder.newFile();
+        ProgressJournal journal = ProgressJournal.open(file);
+        journal.record("upload", 2, 4, Float.NaN);
+        int end = readEnd(file);
+
+        for (int i = 1; i <= 100; i++) {
+            journal.record("upload", 2, 4, i / 100f);
+        }
+
+        assertEquals(end, readEnd(file));
+        assertEquals(1f, journal.get("upload").getStateProgressFraction(), 0f);
+
+        journal.record("upload", 3, 4, 0.25f);
+        journal.record("upload", 3, 4, 0.5f);
+        journal.close();
+
+        ProgressJournal reopened = ProgressJournal.open(file);
+
+        ProgressJournal.Entry upload = reopened.get("upload");
+        assertEquals(3, upload.getCurrentStateNumber());
+        assertEquals(0.5f, upload.getStateProgressFraction(), 0f);
+        reopened.close();
+    }
+
+    @Test
+    public void ignoresARecordWrittenPastTheEndOffset() throws Exception {
+        File file = mFolder.newFile();
+        ProgressJournal journal = ProgressJournal.open(file);
+        journal.record("upload", 1, 4, Float.NaN);
+        journal.close();
+
+        // a crash after the record was copied but before the end offset was moved
+        int end = readEnd(file);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(end);
+        raf.writeShort(6);
+        raf.write("upload".getBytes("UTF-8"));
+        raf.writeInt(3);
+        raf.close();
+
+        ProgressJournal reopened = ProgressJournal.open(file);
+
+        assertEquals(1, reopened.get("upload").getCurrentStateNumber());
+        reopened.record("upload", 2, 4, Float.NaN);
+        reopened.close();
+        ProgressJournal appended = ProgressJournal.open(file);
+        assertEquals(2, appended.get("upload").getCurrentStateNumber());
+        appended.close();
+    }
+
+    @Test
+    public void keepsTheRecordsBeforeACorruptOne() throws Exception {
+        File file = mFolder.newFile();
+        ProgressJournal journal = ProgressJournal.open(file);
+        journal.record("upload", 1, 4, Float.NaN);
+        journal.close();
+
+        // a torn record covered by the end offset, its id runs past the end
+        int end = readEnd(file);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(end);
+        raf.writeShort(Short.MAX_VALUE);
+        raf.seek(4);
+        raf.writeInt(end + 4);
+        raf.close();
+
+        ProgressJournal reopened = ProgressJournal.open(file);
+
+        assertEquals(1, reopened.getEntries().size());
+        assertEquals(1, reopened.get("upload").getCurrentStateNumber());
+        assertEquals(end, readEnd(file));
+        reopened.close();
+    }
+
+    @Test
+    public void removedSessionsStayRemovedAfterReopening() throws Exception {
+        File file = mFolder.newFile();
+        ProgressJournal journal = ProgressJournal.open(file);
+        journal.record("upload", 1, 4, Float.NaN);
+        journal.record("checkout", 2, 5, Float.NaN);
+        journal.remove("upload");
+        journal.close();
+
+        ProgressJournal reopened = ProgressJournal.open(file);
+
+        assertNull(reopened.get("upload"));
+        assertEquals(2, reopened.get("checkout").getCurrentStateNumber());
+        reopened.close();
+    }
+
+    @Test
+    public void compactionKeepsTheLastStateOfEverySession() throws Exception {
+        File file = mFolder.newFile();
+        ProgressJournal journal = ProgressJournal.open(file);
+        journal.record("removed", 1, 2, Float.NaN);
+        journal.remove("removed");
+        for (int i = 0; i < ProgressJournal.INITIAL_CAPACITY; i++) {
+            journal.record("upload", 1 + i % 2, 4, Float.NaN);
+            journal.record("checkout", 3, 5, i / (float) ProgressJournal.INITIAL_CAPACITY);
+        }
+        journal.awaitBackgroundWork();
+
+        assertEquals(ProgressJournal.INITIAL_CAPACITY, journal.getCapacity());
+        assertTrue(readEnd(file) <= ProgressJournal.INITIAL_CAPACITY * 3 / 4);
+        journal.close();
+
+        ProgressJournal reopened = ProgressJournal.open(file);
+
+        assertEquals(2, reopened.getEntries().size());
+        assertNull(reopened.get("removed"));
+        assertEquals(2, reopened.get("upload").getCurrentStateNumber());
+        assertEquals((ProgressJournal.INITIAL_CAPACITY - 1) / (float) ProgressJournal.INITIAL_CAPACITY,
+                reopened.get("checkout").getStateProgressFraction(), 0f);
+        reopened.close();
+    }
+
+    private static int readEnd(File file) throws Exception {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            raf.seek(4);
+            return raf.readInt();
+        } finally {
+            raf.close();
+        }
+    }
+
+}
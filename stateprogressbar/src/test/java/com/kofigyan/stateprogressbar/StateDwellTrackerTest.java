@@ -0,0 +1,123 @@
+package com.kofigyan.stateprogressbar;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class StateDwellTrackerTest {
+
+    private StateDwellTracker mTracker;
+    private long[] mCounts;
+    private long[] mTotalMillis;
+    private long[][] mBucketCounts;
+    private int mSnapshotCount;
+
+    @Before
+    public void setUp() {
+        mTracker = new StateDwellTracker(3);
+        // the snapshot is only valid during the call, so it is copied
+        mTracker.setListener(new StateDwellTracker.Listener() {
+            @Override
+            public void onSnapshot(StateDwellTracker.Snapshot snapshot) {
+                mSnapshotCount++;
+                int maxStateNumber = snapshot.getMaxStateNumber();
+                mCounts = new long[maxStateNumber + 1];
+                mTotalMillis = new long[maxStateNumber + 1];
+                mBucketCounts = new long[maxStateNumber + 1][StateDwellTracker.BUCKET_COUNT];
+                for (int state = 1; state <= maxStateNumber; state++) {
+                    mCounts[state] = snapshot.getCount(state);
+                    mTotalMillis[state] = snapshot.getTotalMillis(state);
+                    for (int bucket = 0; bucket < StateDwellTracker.BUCKET_COUNT; bucket++) {
+                        mBucketCounts[state][bucket] = snapshot.getBucketCount(state, bucket);
+                    }
+                }
+            }
+        }, 60 * 60 * 1000L);
+    }
+
+    @After
+    public void tearDown() {
+        mTracker.setListener(null, 0);
+    }
+
+    @Test
+    public void bucketsDwellTimesByPowersOfTwo() {
+        assertEquals(0, StateDwellTracker.getBucket(0));
+        assertEquals(1, StateDwellTracker.getBucket(1));
+        assertEquals(2, StateDwellTracker.getBucket(2));
+        assertEquals(2, StateDwellTracker.getBucket(3));
+        assertEquals(3, StateDwellTracker.getBucket(4));
+        assertEquals(7, StateDwellTracker.getBucket(127));
+        assertEquals(8, StateDwellTracker.getBucket(128));
+        assertEquals(0, StateDwellTracker.getBucket(-5));
+        assertEquals(StateDwellTracker.BUCKET_COUNT - 1, StateDwellTracker.getBucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void bucketsAreBelowTheirUpperBound() {
+        for (int bucket = 0; bucket < StateDwellTracker.BUCKET_COUNT - 1; bucket++) {
+            long upperBound = StateDwellTracker.Snapshot.getBucketUpperBoundMillis(bucket);
+            assertEquals(bucket, StateDwellTracker.getBucket(upperBound - 1));
+            assertEquals(bucket + 1, StateDwellTracker.getBucket(upperBound));
+        }
+    }
+
+    @Test
+    public void recordsTheTimeSpentInEachState() {
+        mTracker.onStateNumberChanged(1, 1000);
+        mTracker.onStateNumberChanged(2, 1100);
+        mTracker.onStateNumberChanged(1, 1150);
+        mTracker.onStateNumberChanged(3, 1160);
+        mTracker.onStateNumberChanged(0, 1400);
+        mTracker.export();
+
+        assertEquals(1, mSnapshotCount);
+        assertEquals(2, mCounts[1]);
+        assertEquals(110, mTotalMillis[1]);
+        assertEquals(1, mBucketCounts[1][StateDwellTracker.getBucket(100)]);
+        assertEquals(1, mBucketCounts[1][StateDwellTracker.getBucket(10)]);
+        assertEquals(1, mCounts[2]);
+        assertEquals(50, mTotalMillis[2]);
+        assertEquals(1, mBucketCounts[2][StateDwellTracker.getBucket(50)]);
+        assertEquals(240, mTotalMillis[3]);
+    }
+
+    @Test
+    public void ignoresUnchangedAndOutOfRangeStates() {
+        mTracker.onStateNumberChanged(4, 0);
+        mTracker.onStateNumberChanged(1, 100);
+        mTracker.onStateNumberChanged(1, 200);
+        mTracker.onStateNumberChanged(0, 300);
+        mTracker.export();
+
+        assertNotNull(mCounts);
+        assertEquals(1, mCounts[1]);
+        assertEquals(200, mTotalMillis[1]);
+        assertEquals(0, mCounts[3]);
+    }
+
+    @Test
+    public void exportsOnlyWhatWasRecordedSinceTheLastExport() {
+        mTracker.export();
+        assertNull(mCounts);
+
+        mTracker.onStateNumberChanged(1, 0);
+        mTracker.onStateNumberChanged(2, 10);
+        mTracker.export();
+        mTracker.export();
+
+        assertEquals(1, mSnapshotCount);
+
+        mTracker.onStateNumberChanged(3, 30);
+        mTracker.export();
+
+        assertEquals(2, mSnapshotCount);
+        assertEquals(0, mCounts[1]);
+        assertEquals(20, mTotalMillis[2]);
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.kofigyan.stateprogressbar;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.os.Looper;
+import android.widget.RemoteViews;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.shadows.ShadowNotificationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class StateProgressNotifierTest {
+
+    private static final int NOTIFICATION_ID = 7;
+
+    private final List<Integer> mPostedStateNumbers = new ArrayList<Integer>();
+
+    private ShadowNotificationManager mNotificationManager;
+    private StateProgressNotifier mNotifier;
+
+    @Before
+    public void setUp() {
+        Context context = RuntimeEnvironment.application;
+        mNotificationManager = shadowOf((NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE));
+        ShadowLooper.pauseMainLooper();
+
+        mNotifier = new StateProgressNotifier(context, NOTIFICATION_ID, new StateProgressNotifier.NotificationFactory() {
+            @Override
+            public Notification create(RemoteViews content, int currentStateNumber, int maxStateNumber, boolean isFinal) {
+                mPostedStateNumbers.add(currentStateNumber);
+                Notification notification = new Notification();
+                notification.contentView = content;
+                return notification;
+            }
+        }, Looper.getMainLooper());
+    }
+
+    @Test
+    public void coalescesUpdatesIntoOnePostOfTheLatest() {
+        mNotifier.update(1, 4);
+        mNotifier.update(2, 4);
+        mNotifier.update(3, 4);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertEquals(1, mPostedStateNumbers.size());
+        assertEquals(3, (int) mPostedStateNumbers.get(0));
+        assertNotNull(mNotificationManager.getNotification(NOTIFICATION_ID));
+    }
+
+    @Test
+    public void skipsUpdatesShowingTheSameState() {
+        mNotifier.update(2, 4);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        mNotifier.update(2, 4, 0.001f);
+        mNotifier.update(2, 4);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertEquals(1, mPostedStateNumbers.size());
+    }
+
+    @Test
+    public void postsWithoutAFractionClearTheLastOne() {
+        mNotifier.update(2, 4, 0.5f);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        mNotifier.finish(2, 4);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertEquals(2, mPostedStateNumbers.size());
+        assertFalse(mNotifier.getStyle().isStateProgressFractionSet());
+        assertEquals(0f, mNotifier.getStyle().getStateProgressFraction(), 0f);
+    }
+
+    @Test
+    public void cancelDropsThePendingUpdateAndRemovesTheNotification() {
+        mNotifier.update(1, 4);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        mNotifier.update(2, 4);
+        mNotifier.cancel();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertEquals(1, mPostedStateNumbers.size());
+        assertNull(mNotificationManager.getNotification(NOTIFICATION_ID));
+        assertEquals(0, mNotificationManager.size());
+    }
+
+    @Test
+    public void updatesPostedAfterCancelAreShown() {
+        mNotifier.update(1, 4);
+        mNotifier.cancel();
+        mNotifier.update(2, 4);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertEquals(1, mPostedStateNumbers.size());
+        assertEquals(2, (int) mPostedStateNumbers.get(0));
+        assertNotNull(mNotificationManager.getNotification(NOTIFICATION_ID));
+
+        mNotifier.update(3, 4);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertEquals(3, (int) mPostedStateNumbers.get(1));
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.kofigyan.stateprogressbar;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class StateStatusTest {
+
+    @Test
+    public void unpacksAutoWhenNothingIsStored() {
+        assertEquals(StateStatus.AUTO, StateStatus.unpack(null, 0));
+        assertEquals(StateStatus.AUTO, StateStatus.unpack(new int[1], 3));
+        assertEquals(StateStatus.AUTO, StateStatus.unpack(new int[1], StateStatus.STATUSES_PER_INT));
+        assertEquals(StateStatus.AUTO, StateStatus.unpack(new int[1], -1));
+    }
+
+    @Test
+    public void storingAutoInAMissingArrayAllocatesNothing() {
+        assertNull(StateStatus.pack(null, 2, StateStatus.AUTO, 5));
+    }
+
+    @Test
+    public void packsEveryStatusOfAWordIndependently() {
+        int[] packed = null;
+        for (int i = 0; i < StateStatus.STATUSES_PER_INT; i++) {
+            packed = StateStatus.pack(packed, i, i % StateStatus.COUNT, StateStatus.STATUSES_PER_INT);
+        }
+
+        assertEquals(1, packed.length);
+        for (int i = 0; i < StateStatus.STATUSES_PER_INT; i++) {
+            assertEquals(i % StateStatus.COUNT, StateStatus.unpack(packed, i));
+        }
+    }
+
+    @Test
+    public void overwritesAStatusWithoutTouchingItsNeighbours() {
+        int[] packed = StateStatus.pack(null, 0, StateStatus.ERROR, 3);
+        packed = StateStatus.pack(packed, 1, StateStatus.SKIPPED, 3);
+        packed = StateStatus.pack(packed, 2, StateStatus.COMPLETED, 3);
+
+        int[] same = StateStatus.pack(packed, 1, StateStatus.AUTO, 3);
+
+        assertSame(packed, same);
+        assertEquals(StateStatus.ERROR, StateStatus.unpack(packed, 0));
+        assertEquals(StateStatus.AUTO, StateStatus.unpack(packed, 1));
+        assertEquals(StateStatus.COMPLETED, StateStatus.unpack(packed, 2));
+    }
+
+    @Test
+    public void growsTheArrayAndKeepsTheStoredStatuses() {
+        int[] packed = StateStatus.pack(null, 0, StateStatus.ERROR, 1);
+        int index = StateStatus.STATUSES_PER_INT * 2 + 1;
+
+        int[] grown = StateStatus.pack(packed, index, StateStatus.SKIPPED, 1);
+
+        assertEquals(3, grown.length);
+        assertEquals(StateStatus.ERROR, StateStatus.unpack(grown, 0));
+        assertEquals(StateStatus.SKIPPED, StateStatus.unpack(grown, index));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownStatuses() {
+        StateStatus.validate(StateStatus.COUNT);
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.kofigyan.stateprogressbar.utils;
+
+import com.kofigyan.stateprogressbar.StateLabelFormatter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class LabelFormatCacheTest {
+
+    private CountingFormatter formatter;
+
+    private static class CountingFormatter implements StateLabelFormatter {
+        int calls;
+
+        @Override
+        public String format(int value) {
+            calls++;
+            return "#" + value;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        formatter = new CountingFormatter();
+    }
+
+    @Test
+    public void formatsOnceAndReturnsTheCachedLabel() {
+        String first = LabelFormatCache.format(formatter, 7);
+        String second = LabelFormatCache.format(formatter, 7);
+
+        assertEquals("#7", first);
+        assertSame(first, second);
+        assertEquals(1, formatter.calls);
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedLabel() {
+        for (int i = 0; i < LabelFormatCache.MAX_LABELS_PER_FORMATTER; i++) {
+            LabelFormatCache.format(formatter, i);
+        }
+        // touch 0 so that 1 becomes the eldest
+        LabelFormatCache.format(formatter, 0);
+        LabelFormatCache.format(formatter, LabelFormatCache.MAX_LABELS_PER_FORMATTER);
+        int calls = formatter.calls;
+
+        LabelFormatCache.format(formatter, 0);
+        assertEquals(calls, formatter.calls);
+
+        LabelFormatCache.format(formatter, 1);
+        assertEquals(calls + 1, formatter.calls);
+    }
+
+    @Test
+    public void keepsASeparateCachePerFormatter() {
+        CountingFormatter other = new CountingFormatter();
+
+        LabelFormatCache.format(formatter, 3);
+        LabelFormatCache.format(other, 3);
+
+        assertEquals(1, formatter.calls);
+        assertEquals(1, other.calls);
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.kofigyan.stateprogressbar.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+
+public class StripedCounterTest {
+
+    @Test
+    public void sumsTheAddsOfOneThread() {
+        StripedCounter counter = new StripedCounter();
+        counter.add(5);
+        counter.add(-2);
+        counter.add(10);
+
+        assertEquals(13, counter.sum());
+    }
+
+    @Test
+    public void sumsTheAddsOfManyThreads() throws Exception {
+        final StripedCounter counter = new StripedCounter();
+        final int threadCount = 8;
+        final int addsPerThread = 100000;
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < addsPerThread; j++) {
+                        counter.add(1);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals((long) threadCount * addsPerThread, counter.sum());
+    }
+
+    @Test
+    public void resetsToZero() {
+        StripedCounter counter = new StripedCounter();
+        counter.add(42);
+        counter.reset();
+
+        assertEquals(0, counter.sum());
+        counter.add(1);
+        assertEquals(1, counter.sum());
+    }
+
+}